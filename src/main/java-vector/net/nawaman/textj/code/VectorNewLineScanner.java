@@ -0,0 +1,65 @@
+package net.nawaman.textj.code;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Finds newline characters with the Vector API -- a whole vector of characters is compared per step.
+ * 
+ * This class is in its own source root as it needs the incubating module <code>jdk.incubator.vector</code> --
+ *   it is only built with the profile <code>vector</code> (<code>mvn -Pvector</code>).
+ * {@link NewLineScanner} loads it (by name) only when the module is resolved
+ *   (that is, the application runs with <code>--add-modules jdk.incubator.vector</code>).
+ */
+final class VectorNewLineScanner implements NewLineScanner.Vectorized {
+    
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    
+    VectorNewLineScanner() {
+    }
+    
+    /**
+     * Returns the index of the first '\n' or '\r' in the given range.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the index of the first newline character or -1 if there is none.
+     */
+    @Override
+    public int indexOfNewLine(char[] chars, int from, int to) {
+        int lanes = SPECIES.length();
+        int i     = from;
+        for (int last = to - lanes; i <= last; i += lanes) {
+            var vector    = ShortVector.fromCharArray(SPECIES, chars, i);
+            var isNewLine = vector.eq((short)'\n').or(vector.eq((short)'\r'));
+            if (isNewLine.anyTrue()) {
+                return i + isNewLine.firstTrue();
+            }
+        }
+        return NewLineScanner.scalarIndexOfNewLine(chars, i, to);
+    }
+    
+    /**
+     * Returns the index of the last '\n' or '\r' in the given range.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the index of the last newline character or -1 if there is none.
+     */
+    @Override
+    public int lastIndexOfNewLine(char[] chars, int from, int to) {
+        int lanes = SPECIES.length();
+        int i     = to;
+        for (int first = from + lanes; i >= first; i -= lanes) {
+            var vector    = ShortVector.fromCharArray(SPECIES, chars, i - lanes);
+            var isNewLine = vector.eq((short)'\n').or(vector.eq((short)'\r'));
+            if (isNewLine.anyTrue()) {
+                return i - lanes + isNewLine.lastTrue();
+            }
+        }
+        return NewLineScanner.scalarLastIndexOfNewLine(chars, from, i);
+    }
+    
+}
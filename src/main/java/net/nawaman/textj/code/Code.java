@@ -3,9 +3,26 @@ package net.nawaman.textj.code;
 import static functionalj.list.intlist.IntFuncList.infinite;
 import static java.lang.Math.abs;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 import functionalj.list.FuncList;
 import functionalj.list.intlist.IntFuncList;
-import net.nawaman.textj.internal.SortedAbsoluteIntArray;
+import functionalj.ref.Ref;
+import net.nawaman.textj.internal.EliasFanoIntArray;
+import net.nawaman.textj.internal.SplicedAbsoluteIntIndex;
+import net.nawaman.textj.text.MappedStr;
+import net.nawaman.textj.text.Part;
 import net.nawaman.textj.text.Str;
 import net.nawaman.textj.text.Text;
 
@@ -20,17 +37,84 @@ import net.nawaman.textj.text.Text;
  * 
  * Note: To account for the two character new line (i.e. '\r\n'), the new line offset is stored as negative.
  * 
+ * The lines can also be indexed ahead of time on a background thread (see {@link #indexInBackground()}).
+ * Queries are then answered from the already indexed part and only index further when they reach past it.
+ * 
+ * A code can be shared between threads.
+ * Reading the already indexed lines never locks.
+ * Threads that need more lines take turns to extend the index so the same content is never scanned twice.
+ * 
+ * The last lines can be found without processing the whole content (see {@link #processLastLines(int)}).
+ * Those are found by scanning backward from the end and kept apart
+ *   until the forward processing reaches them (or they reach the forward processing) when the two are merged.
+ * 
+ * Once there are many lines, the newline offsets are compacted using Elias-Fano encoding
+ *   which takes a few bits per line instead of an int (see {@link #CompactLineCount}).
+ * 
  * Note: Although once processed, the processing might not be the most optimize,
  *         the code only be processed when needed.
  *       And the space used is optimized. (as much as I could)
  */
 public class Code {
     
+    /** The default content length from which {@link #processAllLines()} indexes the lines in parallel. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 8*1024*1024;
+    
+    /** The reference to the content length from which {@link #processAllLines()} indexes the lines in parallel. */
+    public static Ref<Integer> ParallelThreshold = Ref.ofValue(DEFAULT_PARALLEL_THRESHOLD);
+    
+    /** The default number of newlines from which the newline offsets are compacted. */
+    public static final int DEFAULT_COMPACT_LINE_COUNT = 1024*1024;
+    
+    /**
+     * The reference to the number of newlines from which the newline offsets are compacted.
+     * 
+     * The offsets are compacted once all the lines are processed
+     *   or whenever the offsets not yet compacted are at least this many and at least as many as the compacted ones.
+     */
+    public static Ref<Integer> CompactLineCount = Ref.ofValue(DEFAULT_COMPACT_LINE_COUNT);
+    
+    /** The reference to whether a newly constructed code starts indexing its lines in the background. */
+    public static Ref<Boolean> BackgroundIndexing = Ref.ofValue(false);
+    
+    /** The number of characters indexed by each step of the background indexing. */
+    static final int BACKGROUND_STEP_LENGTH = 256*1024;
+    
+    /** The number of characters processed between the checks of the deadline by {@link #processLinesUntil(long)}. */
+    static final int DEADLINE_STEP_LENGTH = 16*1024;
+    
+    // The range of the number of characters copied at a time for newline scanning.
+    private static final int MIN_SCAN_BLOCK_LENGTH = 128;
+    private static final int MAX_SCAN_BLOCK_LENGTH = 8*1024;
+    
+    /** The number of newline offsets up to which neighbouring pieces shared through edits are merged into one. */
+    static final int EDIT_PIECE_MERGE_LENGTH = 64;
+    
+    // The raw offset that is never a newline -- a '\r\n' ends at 1 at the earliest.
+    private static final int NO_NEWLINE = Integer.MIN_VALUE;
+    
+    /** The number of characters read at a time by {@link #from(Reader)}. */
+    static final int READ_CHUNK_LENGTH = 64*1024;
+    
     private final Text content;
     
-    private final SortedAbsoluteIntArray newLines = new SortedAbsoluteIntArray();
-    private int processedOffset         = 0;
-    private int previousProcessedOffset = 0;
+    // The newlines are only added while holding the index lock and each is published before the processed offset,
+    //   so a reader that reads the processed offset first sees all the newlines before it without locking.
+    private final    Object       indexLock = new Object();
+    private final    int          compactLineCount;
+    private volatile NewLineIndex newLines;
+    private volatile int processedOffset         = 0;
+    private          int previousProcessedOffset = 0;
+    
+    // The newlines found backward from the end (the last one first) and the offset from which all are found.
+    // The array is only replaced (when grown) and written before the count so reading the count first is enough.
+    private volatile int[] tailNewLines     = new int[0];
+    private volatile int   tailNewLineCount = 0;
+    private volatile int   tailOffset;
+    
+    // The last line looked up -- most lookups are at or near the one before.
+    // It is immutable so it is shared between threads without synchronization.
+    private LineFinger lineFinger;
     
     
     /**
@@ -42,7 +126,160 @@ public class Code {
      * @param content  the content of the code with new lines.
      */
     public Code(String content) {
-        this.content = (content == null) ? Str.empty : Text.Str(content);
+        this((content == null) ? Str.empty : Text.Str(content));
+    }
+    
+    /**
+     * Constructs a new instance of code with the given content.
+     * 
+     * The content is used as is so the lines are indexed over its original structure.
+     * 
+     * @param content  the content of the code with new lines.
+     */
+    public Code(Text content) {
+        this.content          = (content == null) ? Str.empty : content;
+        this.compactLineCount = Math.max(CompactLineCount.orElse(DEFAULT_COMPACT_LINE_COUNT), 1);
+        this.tailOffset       = this.content.length();
+        this.newLines         = new NewLineIndex();
+        if (BackgroundIndexing.orElse(false)) {
+            indexInBackground();
+        }
+    }
+    
+    /**
+     * Constructs a code whose lines are all already processed.
+     * 
+     * @param content   the content of the code with new lines.
+     * @param newLines  all the newline offsets of the content.
+     */
+    Code(Text content, NewLineIndex newLines) {
+        this(content, newLines, content.length());
+    }
+    
+    /**
+     * Constructs a code whose lines are already processed up to the given offset.
+     * 
+     * @param content          the content of the code with new lines.
+     * @param newLines         the newline offsets before the processed offset.
+     * @param processedOffset  the processed offset -- not in the middle of a '\r\n'.
+     */
+    Code(Text content, NewLineIndex newLines, int processedOffset) {
+        this.content          = content;
+        this.compactLineCount = Math.max(CompactLineCount.orElse(DEFAULT_COMPACT_LINE_COUNT), 1);
+        this.tailOffset       = content.length();
+        
+        int lineCount = newLines.length();
+        this.newLines                = newLines;
+        this.previousProcessedOffset = (lineCount == 0) ? 0 : abs(newLines.get(lineCount - 1));
+        this.processedOffset         = processedOffset;
+    }
+    
+    /**
+     * Creates a code of the given content.
+     * 
+     * @param content  the content of the code with new lines.
+     * @return         the code.
+     */
+    public static Code of(Text content) {
+        return new Code(content);
+    }
+    
+    /**
+     * Creates a code of the given content.
+     * 
+     * A {@link Text} is used as is. Any other char sequence might be mutable so its current content is copied.
+     * 
+     * @param content  the content of the code with new lines.
+     * @return         the code.
+     */
+    public static Code of(CharSequence content) {
+        if (content instanceof Text text) {
+            return new Code(text);
+        }
+        return new Code((content == null) ? null : content.toString());
+    }
+    
+    /**
+     * Creates a code by reading all the content from the given reader.
+     * 
+     * The content is read in chunks and kept as a sequence of those chunks -- it is never copied into one string.
+     * The reader is not closed.
+     * 
+     * @param reader  the reader.
+     * @return        the code.
+     * @throws IOException  if the reader fails.
+     */
+    public static Code from(Reader reader) throws IOException {
+        var chunks = new ArrayList<Text>();
+        var buffer = new char[READ_CHUNK_LENGTH];
+        int count  = 0;
+        int read;
+        while ((read = reader.read(buffer, count, buffer.length - count)) != -1) {
+            count += read;
+            if (count == buffer.length) {
+                chunks.add(Text.Str(new String(buffer, 0, count)));
+                count = 0;
+            }
+        }
+        if (count != 0) {
+            chunks.add(Text.Str(new String(buffer, 0, count)));
+        }
+        
+        var content = (chunks.size() == 1) ? chunks.get(0) : Text.Sequence(FuncList.from(chunks));
+        return new Code(content);
+    }
+    
+    /**
+     * Creates a code of the content of the given file.
+     * 
+     * The file is memory-mapped and decoded on demand (see {@link MappedStr}) so it is never loaded whole on the heap.
+     * 
+     * The content of the code is the {@link MappedStr} which keeps the file mapped until it is closed
+     *   (or garbage collected) -- while mapped, the file may not be deleted or truncated on some platforms.
+     * To release the file early, close the content once the code (and any text taken from it) is no longer used:
+     * <pre>
+     * var code = Code.from(path, charset);
+     * try (var mapped = (MappedStr)code.content()) {
+     *     ...
+     * }
+     * </pre>
+     * 
+     * @param path     the path to the file.
+     * @param charset  the charset of the file.
+     * @return         the code -- its content is a {@link MappedStr}.
+     * @throws IOException  if the file cannot be read.
+     */
+    public static Code from(Path path, Charset charset) throws IOException {
+        return new Code(MappedStr.map(path, charset));
+    }
+    
+    /**
+     * Starts indexing the lines on the common fork-join pool.
+     * 
+     * @return  this code.
+     * @see #indexInBackground(Executor)
+     */
+    public final Code indexInBackground() {
+        return indexInBackground(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Starts indexing the lines in the background using the given executor.
+     * 
+     * The content is indexed in steps of a bounded number of characters and each step is submitted separately,
+     *   so the indexing never holds on to a thread of the executor for long.
+     * Queries made in the mean time are answered from the already indexed lines
+     *   and only wait for (or do) the indexing that reaches past those lines.
+     * 
+     * @param executor  the executor to run the indexing steps on.
+     * @return          this code.
+     */
+    public final Code indexInBackground(Executor executor) {
+        Objects.requireNonNull(executor);
+        if (!isProcessedAll()) {
+            executor.execute(new IndexingStep(executor));
+        }
+        return this;
     }
     
     /** @return  the content of the code. */
@@ -66,11 +303,114 @@ public class Code {
     
     /**
      * Ensures that all the lines are processed.
+     * 
+     * If the unprocessed content is at least {@link #ParallelThreshold} long,
+     *   the rest of the content is indexed in parallel (see {@link #processAllLinesInParallel(ForkJoinPool)}).
      */
     public void processAllLines() {
+        int remaining = tailOffset - processedOffset();
+        if (remaining >= ParallelThreshold.orElse(DEFAULT_PARALLEL_THRESHOLD)) {
+            processAllLinesInParallel(ForkJoinPool.commonPool());
+            return;
+        }
         processToLineCount(Integer.MAX_VALUE);
     }
     
+    /**
+     * Ensures that all the lines are processed by scanning the rest of the content in parallel.
+     * 
+     * The unprocessed content is split into chunks which are scanned for newlines on the given pool
+     *   and the found newlines are then added to the index in order.
+     * 
+     * @param pool  the pool to scan the content on.
+     */
+    public void processAllLinesInParallel(ForkJoinPool pool) {
+        processAllLinesInParallel(pool, NewLineScanTask.DEFAULT_CHUNK_LENGTH);
+    }
+    
+    final void processAllLinesInParallel(ForkJoinPool pool, int chunkLength) {
+        int length = content.length();
+        if (processedOffset >= length) {
+            return;
+        }
+        
+        synchronized (indexLock) {
+            if (processedOffset >= length) {
+                return;
+            }
+            
+            // Only up to where the backward scan reached as the rest is already found.
+            int to    = tailOffset;
+            var task  = new NewLineScanTask(content, processedOffset, to, chunkLength);
+            var found = pool.invoke(task);
+            if (found.length != 0) {
+                newLines.addAll(found, 0, found.length);
+                previousProcessedOffset = abs(found[found.length - 1]);
+            }
+            processedOffset = to;
+            mergeTailNewLines();
+        }
+    }
+    
+    //== Budget ==
+    
+    /**
+     * Processes the lines further but scans no more than the given number of characters.
+     * 
+     * This allows a huge content to be indexed cooperatively -- for example, a little between frames of a viewer.
+     * 
+     * @param maxChars  the maximum number of characters to scan.
+     * @return          the progress after the processing.
+     */
+    public final LineProgress processLines(int maxChars) {
+        if (maxChars < 0) {
+            var message = "The maximum number of characters must not be negative: maxChars=" + maxChars;
+            throw new IllegalArgumentException(message);
+        }
+        
+        if (!isProcessedAll() && (maxChars != 0)) {
+            synchronized (indexLock) {
+                int limit = (int)Math.min((long)processedOffset + maxChars, Integer.MAX_VALUE);
+                scanLinesUpTo(Integer.MAX_VALUE, Integer.MAX_VALUE, limit);
+            }
+        }
+        return lineProgress();
+    }
+    
+    /**
+     * Processes the lines further until the given deadline.
+     * 
+     * The deadline is checked every {@value #DEADLINE_STEP_LENGTH} characters so it may be passed by that much work.
+     * 
+     * @param deadline  the deadline as of {@link System#nanoTime()}.
+     * @return          the progress after the processing.
+     */
+    public final LineProgress processLinesUntil(long deadline) {
+        while (!isProcessedAll() && (System.nanoTime() - deadline < 0)) {
+            processLines(DEADLINE_STEP_LENGTH);
+        }
+        return lineProgress();
+    }
+    
+    /**
+     * Processes the lines further for (about) the given duration.
+     * 
+     * @param duration  the duration.
+     * @return          the progress after the processing.
+     * @see #processLinesUntil(long)
+     */
+    public final LineProgress processLinesFor(Duration duration) {
+        return processLinesUntil(System.nanoTime() + duration.toNanos());
+    }
+    
+    /** @return  the current progress of the line processing. */
+    public final LineProgress lineProgress() {
+        // The processed offset is read first so the line count is at least what was found up to it.
+        int processedOffset = this.processedOffset;
+        int knownLineCount  = knownLineCount();
+        return new LineProgress(processedOffset, content.length(), knownLineCount);
+    }
+    
     //== Step ==
     
     /**
@@ -94,31 +434,121 @@ public class Code {
     }
     
     private void processLinesUpTo(int offset, int lines) {
+        if (isProcessedUpTo(offset, lines)) {
+            return;
+        }
+        synchronized (indexLock) {
+            scanLinesUpTo(offset, lines, Integer.MAX_VALUE);
+        }
+    }
+    
+    // Checks without locking if the newline at or after the offset or the line count is already reached.
+    private boolean isProcessedUpTo(int offset, int lines) {
+        int length = content.length();
+        if (processedOffset >= length) {
+            return true;
+        }
+        
+        int lineCount = newLines.length();
+        if (lineCount >= lines) {
+            return true;
+        }
+        int lastNewLine = (lineCount == 0) ? 0 : abs(newLines.get(lineCount - 1));
+        return lastNewLine >= Math.min(offset, length);
+    }
+    
+    // Scans until the newline at or after the offset or the line count is reached but never scans past the limit.
+    // The index lock must be held.
+    private void scanLinesUpTo(int offset, int lines, int limit) {
         var lineCount = knownLineCount();
         var content   = content();
         int length    = content.length();
         offset = Math.min(offset, length);
-        for ( ; (previousProcessedOffset < offset) && (lineCount < lines) && (processedOffset < length); processedOffset++) {
-            var ch = content.charAt(processedOffset);
-            if (ch == '\r') {
-                if (((processedOffset + 1) < length) && (content.charAt(processedOffset + 1) == '\n')) {
-                    processedOffset++;
-                    addNewLine(-processedOffset);
-                    lineCount++;
-                } else {
-                    addNewLine(processedOffset);
-                    lineCount++;
+        limit  = Math.min(limit,  tailOffset);
+        
+        // The processed offset is only published once per block as each publication is a volatile write.
+        int processed = processedOffset;
+        
+        // The characters are copied in blocks that grow as the scan goes on
+        //   so a request for just the next line does not copy much more than that line.
+        int blockLength = MIN_SCAN_BLOCK_LENGTH;
+        var block       = (char[])null;
+        while ((previousProcessedOffset < offset) && (lineCount < lines) && (processed < limit)) {
+            int blockStart = processed;
+            int blockEnd   = Math.min(blockStart + blockLength, limit);
+            if ((block == null) || (block.length < blockLength)) {
+                block = new char[blockLength];
+            }
+            content.getChars(blockStart, blockEnd, block, 0);
+            blockLength = Math.min(blockLength*2, MAX_SCAN_BLOCK_LENGTH);
+            
+            int index = 0;
+            while ((previousProcessedOffset < offset) && (lineCount < lines)) {
+                index = NewLineScanner.indexOfNewLine(block, index, blockEnd - blockStart);
+                if (index == -1) {
+                    // A '\r\n' straddling the block end is already processed past the block.
+                    processed = Math.max(processed, blockEnd);
+                    break;
                 }
-            } else if (ch == '\n') {
-                addNewLine(processedOffset);
+                
+                int newLineOffset = blockStart + index;
+                if (block[index] == '\r') {
+                    int  nextOffset = newLineOffset + 1;
+                    char next       = (nextOffset < blockEnd) ? block[index + 1]
+                                    : (nextOffset < length)   ? content.charAt(nextOffset)
+                                    : 0;
+                    if (next == '\n') {
+                        newLineOffset = -nextOffset;
+                    }
+                }
+                addNewLine(newLineOffset);
                 lineCount++;
+                
+                processed = abs(newLineOffset) + 1;
+                index     = processed - blockStart;
             }
+            processedOffset = processed;
+        }
+        if (processed >= tailOffset) {
+            mergeTailNewLines();
         }
+        compactIfProcessedAll();
     }
     
     private void addNewLine(int newLineOffset) {
+        var newLines = this.newLines;
         newLines.add(newLineOffset);
         previousProcessedOffset = abs(newLineOffset);
+        
+        // Compacting when the tail is as long as the head keeps the compaction cost amortized constant per line.
+        int tailLength = newLines.tailLength();
+        if ((tailLength >= compactLineCount) && (tailLength >= newLines.headLength())) {
+            this.newLines = newLines.compact();
+        }
+    }
+    
+    private void compactIfProcessedAll() {
+        var newLines = this.newLines;
+        if ((processedOffset >= content.length()) && (newLines.length() >= compactLineCount)) {
+            this.newLines = newLines.compact();
+        }
+    }
+    
+    /**
+     * Compacts the newline offsets processed so far regardless of {@link #CompactLineCount}.
+     * 
+     * The compacted offsets take a few bits per line instead of an int
+     *   but finding a line from them is a bit slower.
+     */
+    public final void compactLines() {
+        synchronized (indexLock) {
+            newLines = newLines.compact();
+        }
+    }
+    
+    /** @return  the number of newline offsets that are compacted. */
+    final int compactedLineCount() {
+        return newLines.headLength();
     }
     
     /** @return  the currently known number of lines. */
@@ -160,6 +590,10 @@ public class Code {
         if (lineNumber == 0) {
             return 0;
         }
+        var finger = lineFinger;
+        if ((finger != null) && (finger.line() == lineNumber)) {
+            return finger.start();
+        }
         if (isProcessedAll()) {
             int lineCount = lineCount();
             if (lineNumber >= lineCount) {
@@ -186,6 +620,10 @@ public class Code {
     }
     
     final int rawEndOffset(int lineNumber) {
+        var finger = lineFinger;
+        if ((finger != null) && (finger.line() == lineNumber)) {
+            return finger.rawEnd();
+        }
         if (lineNumber < 0) {
             var message = "Line number must be greater than or equal to 0: lineNumber=" + lineNumber;
             throw new IndexOutOfBoundsException(message);
@@ -206,6 +644,7 @@ public class Code {
         int newlineCount = knownLineCount();
         if (lineNumber != newlineCount) {
             end = newLines.get(lineNumber);
+            lineFinger = newLineFinger(lineNumber, end, finger);
         }
         return end;
     }
@@ -220,7 +659,7 @@ public class Code {
         var start   = startOffset(lineNumber);
         var end     = endOffset(lineNumber);
         var content = content();
-        var line    = content.toString().substring(start, end);
+        var line    = content.substring(start, end);
         return line;
     }
     
@@ -231,12 +670,21 @@ public class Code {
      * @return            the line at the given line number including the newline.
      */
     public final String lineLn(int lineNumber) {
-        int knownLineCount = knownLineCount();
-        if (lineNumber < knownLineCount - 1) {
-            processToLineCount(knownLineCount + 1);
+        var start   = startOffset(lineNumber);
+        var end     = lineLnEndOffset(lineNumber);
+        var content = content();
+        return content.substring(start, end);
+    }
+    
+    // The end offset of the line including its newline.
+    private int lineLnEndOffset(int lineNumber) {
+        // Knowing if there is a line after this one must not depend on how far the lines happen to be processed
+        //   (possibly by another thread) so the line after is always processed first.
+        if (lineNumber >= 0) {
+            processToLineCount(lineNumber + 2);
         }
+        int knownLineCount = knownLineCount();
         
-        var start   = startOffset(lineNumber);
         int end;
         if (lineNumber < knownLineCount - 1) {
             end = startOffset(lineNumber + 1);
@@ -246,8 +694,39 @@ public class Code {
                 end = abs(end) + 1;
             }
         }
+        return end;
+    }
+    
+    /**
+     * Returns the line at the given line number as a view of the content.
+     * 
+     * No character is copied -- the part only points to the range of the line in the content.
+     *
+     * @param lineNumber  the line number.
+     * @return            the line at the given line number.
+     */
+    public final Part lineText(int lineNumber) {
+        var start = startOffset(lineNumber);
+        var end   = endOffset(lineNumber);
+        return part(start, end);
+    }
+    
+    /**
+     * Returns the line at the given line number including the newline as a view of the content.
+     * 
+     * @param lineNumber  the line number.
+     * @return            the line at the given line number including the newline.
+     */
+    public final Part lineLnText(int lineNumber) {
+        var start = startOffset(lineNumber);
+        var end   = lineLnEndOffset(lineNumber);
+        return part(start, end);
+    }
+    
+    // A part of the content -- a part of a part points to the original text directly.
+    final Part part(int start, int end) {
         var content = content();
-        return content.toString().substring(start, end);
+        return (content instanceof Part part) ? part.subSequence(start, end) : Text.Part(content, start, end);
     }
     
     /** @return  a stream of lines in the content. */
@@ -264,6 +743,20 @@ public class Code {
                 .mapToObj(this::lineLn);
     }
     
+    /** @return  a stream of lines in the content as views of the content. */
+    public final FuncList<Part> lineTexts() {
+        return infinite()
+                .acceptUntil(index -> isProcessedAll() && (index > knownLineCount()))
+                .mapToObj(this::lineText);
+    }
+    
+    /** @return  a stream of lines with newline in the content as views of the content. */
+    public final FuncList<Part> lineLnTexts() {
+        return infinite()
+                .acceptUntil(index -> isProcessedAll() && (index > knownLineCount()))
+                .mapToObj(this::lineLnText);
+    }
+    
     /**
      * Returns the line number at the given offset.
      *
@@ -271,7 +764,13 @@ public class Code {
      * @return        the line number at the given offset.
      */
     public int lineNumberAtOffset(int offset) {
+        var finger = lineFinger;
+        if ((finger != null) && finger.contains(offset)) {
+            return finger.line();
+        }
+        
         processLinesToOffset(offset);
+        var newLines = this.newLines;
         if (newLines.length() == 0) {
             return 0;
         }
@@ -279,7 +778,12 @@ public class Code {
             return lineCount() - 1;
         }
         
-        int index = newLines.indexOf(offset);
+        // Gallop from the last line looked up as the offset is likely near it.
+        int hint  = (finger == null) ? -1 : finger.line();
+        int index = newLines.indexOf(offset, hint);
+        if (index < newLines.length()) {
+            lineFinger = newLineFinger(index, newLines.get(index), finger);
+        }
         return index;
     }
     
@@ -295,4 +799,493 @@ public class Code {
         return line;
     }
     
+    //== Tail ==
+    
+    /**
+     * Ensures that the given number of lines at the end of the content are processed.
+     * 
+     * The content is scanned backward from its end so only the last lines are looked at
+     *   -- for example, showing the last lines of a huge log does not process the whole log.
+     * Once the backward scan reaches the lines processed forward (or the other way around),
+     *   all the lines are processed.
+     * 
+     * @param lineCount  the number of lines from the end.
+     */
+    public final void processLastLines(int lineCount) {
+        if (isProcessedAll() || (tailNewLineCount >= lineCount)) {
+            return;
+        }
+        synchronized (indexLock) {
+            scanLastLines(lineCount);
+        }
+    }
+    
+    /**
+     * Returns the start offset of the line counted from the end.
+     * 
+     * @param lineNumberFromEnd  the line number from the end -- 0 for the last line.
+     * @return                   the start offset of the line.
+     */
+    public final int startOffsetFromEnd(int lineNumberFromEnd) {
+        checkLineNumberFromEnd(lineNumberFromEnd);
+        int newLine = rawNewLineFromEnd(lineNumberFromEnd);
+        return (newLine == NO_NEWLINE) ? 0 : (abs(newLine) + 1);
+    }
+    
+    /**
+     * Returns the end offset (excluding the newline) of the line counted from the end.
+     * 
+     * @param lineNumberFromEnd  the line number from the end -- 0 for the last line.
+     * @return                   the end offset of the line.
+     */
+    public final int endOffsetFromEnd(int lineNumberFromEnd) {
+        checkLineNumberFromEnd(lineNumberFromEnd);
+        if (lineNumberFromEnd == 0) {
+            return content.length();
+        }
+        int end = rawNewLineFromEnd(lineNumberFromEnd - 1);
+        return (end < 0) ? (-end - 1) : end;
+    }
+    
+    /**
+     * Returns the line counted from the end.
+     * 
+     * @param lineNumberFromEnd  the line number from the end -- 0 for the last line.
+     * @return                   the line.
+     */
+    public final String lineFromEnd(int lineNumberFromEnd) {
+        var start = startOffsetFromEnd(lineNumberFromEnd);
+        var end   = endOffsetFromEnd(lineNumberFromEnd);
+        return content.substring(start, end);
+    }
+    
+    /**
+     * Returns the last lines in their order in the content.
+     * 
+     * @param count  the maximum number of lines.
+     * @return       the last lines -- fewer than the count if the content does not have that many lines.
+     */
+    public final FuncList<String> lastLines(int count) {
+        if (count < 0) {
+            var message = "The number of lines must not be negative: count=" + count;
+            throw new IllegalArgumentException(message);
+        }
+        
+        processLastLines(count);
+        // When not all processed, the backward scan stopped only after finding that many newlines.
+        int lineCount = isProcessedAll() ? lineCount() : count;
+        int found     = Math.min(count, lineCount);
+        var lines     = new ArrayList<String>(found);
+        for (int i = found; --i >= 0;) {
+            lines.add(lineFromEnd(i));
+        }
+        return FuncList.from(lines);
+    }
+    
+    /** @return  the offset from which the content is scanned backward. */
+    final int tailOffset() {
+        return tailOffset;
+    }
+    
+    private void checkLineNumberFromEnd(int lineNumberFromEnd) {
+        if (lineNumberFromEnd < 0) {
+            var message = "Line number must be greater than or equal to 0: lineNumberFromEnd=" + lineNumberFromEnd;
+            throw new IndexOutOfBoundsException(message);
+        }
+        
+        processLastLines((lineNumberFromEnd == Integer.MAX_VALUE) ? lineNumberFromEnd : (lineNumberFromEnd + 1));
+        if (isProcessedAll()) {
+            int lineCount = lineCount();
+            if (lineNumberFromEnd >= lineCount) {
+                var message 
+                        = "Line number must be less than the line count: lineNumberFromEnd=%s, lineCount=%s"
+                        .formatted(lineNumberFromEnd, lineCount);
+                throw new IndexOutOfBoundsException(message);
+            }
+        }
+    }
+    
+    // The raw offset of the newline counted from the end or NO_NEWLINE if there are not that many newlines.
+    // The newlines up to it must already be processed backward unless all the lines are processed.
+    private int rawNewLineFromEnd(int index) {
+        if (isProcessedAll()) {
+            var newLines = this.newLines;
+            int count    = newLines.length();
+            return (index < count) ? newLines.get(count - 1 - index) : NO_NEWLINE;
+        }
+        // The lines can only become all processed after the backward scan so it still has the newline.
+        return tailNewLines[index];
+    }
+    
+    // Scans backward until the given number of newlines are found from the end or the forward processing is reached.
+    // The index lock must be held.
+    private void scanLastLines(int lineCount) {
+        var content      = content();
+        var tailNewLines = this.tailNewLines;
+        int count        = tailNewLineCount;
+        int tail         = tailOffset;
+        int stop         = processedOffset;
+        
+        int blockLength = MIN_SCAN_BLOCK_LENGTH;
+        var block       = (char[])null;
+        while ((count < lineCount) && (tail > stop)) {
+            int blockEnd   = tail;
+            int blockStart = Math.max(blockEnd - blockLength, stop);
+            if ((block == null) || (block.length < blockLength)) {
+                block = new char[blockLength];
+            }
+            content.getChars(blockStart, blockEnd, block, 0);
+            blockLength = Math.min(blockLength*2, MAX_SCAN_BLOCK_LENGTH);
+            
+            int index = blockEnd - blockStart;
+            while (count < lineCount) {
+                index = NewLineScanner.lastIndexOfNewLine(block, 0, Math.max(index, 0));
+                if (index == -1) {
+                    // The '\r' of a '\r\n' straddling the block start is already scanned.
+                    tail = Math.min(tail, blockStart);
+                    break;
+                }
+                
+                int newLineOffset = blockStart + index;
+                int newLine       = newLineOffset;
+                if (block[index] == '\n') {
+                    int  previousOffset = newLineOffset - 1;
+                    char previous       = (index > 0)           ? block[index - 1]
+                                        : (previousOffset >= 0) ? content.charAt(previousOffset)
+                                        : 0;
+                    if (previous == '\r') {
+                        newLine       = -newLineOffset;
+                        newLineOffset = previousOffset;
+                    }
+                }
+                if (count == tailNewLines.length) {
+                    tailNewLines = Arrays.copyOf(tailNewLines, Math.max(count*2, 16));
+                }
+                tailNewLines[count++] = newLine;
+                
+                tail  = newLineOffset;
+                index = newLineOffset - blockStart;
+            }
+            this.tailNewLines     = tailNewLines;
+            this.tailNewLineCount = count;
+            this.tailOffset       = tail;
+        }
+        if (tail <= stop) {
+            mergeTailNewLines();
+        }
+    }
+    
+    // Adds the newlines found backward after the processed offset which must have reached the tail offset.
+    // No newline straddles either offset as both scans look at the other character of a '\r\n'.
+    // The index lock must be held.
+    private void mergeTailNewLines() {
+        var tailNewLines = this.tailNewLines;
+        int processed    = processedOffset;
+        for (int i = tailNewLineCount; --i >= 0;) {
+            int newLine      = tailNewLines[i];
+            int newLineStart = (newLine < 0) ? (-newLine - 1) : newLine;
+            if (newLineStart >= processed) {
+                addNewLine(newLine);
+            }
+        }
+        processedOffset = content.length();
+        compactIfProcessedAll();
+    }
+    
+    //== Edit ==
+    
+    /**
+     * Returns the code of the content with the given range replaced with the given text.
+     * 
+     * This code is not changed. The new code shares the content of this code except for the replaced range,
+     *   and it shares the newline offsets found so far -- those after the range are shifted without being copied.
+     * The new code does not keep this code (nor its content) reachable -- only the leaves of the content are shared.
+     * Only the inserted text (and a character around it) is scanned for newlines,
+     *   so the cost is proportional to the size of the edit (and the log of the number of edits)
+     *   and not to the size of the content.
+     * 
+     * @param offset         the offset of the range to be replaced.
+     * @param deletedLength  the length of the range to be replaced.
+     * @param insertedText   the text to replace the range with.
+     * @return               the code of the edited content.
+     */
+    public final Code applyEdit(int offset, int deletedLength, CharSequence insertedText) {
+        return applyEdit(new CodeEdit(offset, deletedLength, insertedText));
+    }
+    
+    /**
+     * Returns the code of the content with the given edit applied.
+     * 
+     * @param edit  the edit.
+     * @return      the code of the edited content.
+     * @see #applyEdit(int, int, CharSequence)
+     */
+    public final Code applyEdit(CodeEdit edit) {
+        int length = content.length();
+        int start  = edit.offset();
+        int end    = edit.end();
+        if ((end > length) || (end < start)) {
+            var message = "Edit out of bound: offset=%d, deletedLength=%d, length=%d"
+                        .formatted(start, edit.deletedLength(), length);
+            throw new IndexOutOfBoundsException(message);
+        }
+        
+        var inserted = (edit.insertedText() instanceof Text text) ? text : Text.Str(edit.insertedText().toString());
+        if ((start == end) && (inserted.length() == 0)) {
+            return this;
+        }
+        
+        var edited = Text.concat(part(0, start), inserted, part(end, length));
+        int shift  = inserted.length() - (end - start);
+        
+        // The newlines to find again are from a '\r' just before the range (which may now be followed by a '\n')
+        //   to a '\n' just after the range (which may now be or no longer be after a '\r').
+        // No newline straddles either end so the newlines before and after are kept as they are.
+        int scanStart = ((start > 0) && (content.charAt(start - 1) == '\r')) ? (start - 1) : start;
+        int scanEnd   = ((end < length) && (content.charAt(end) == '\n')) ? (end + 1) : end;
+        
+        // The processed offset is read first so the newlines are at least those before it.
+        int processedOffset = this.processedOffset;
+        var newLines        = this.newLines;
+        var pieces          = new SplicedAbsoluteIntIndex.Builder(EDIT_PIECE_MERGE_LENGTH);
+        int editedProcessedOffset;
+        if (processedOffset < scanEnd) {
+            // The range is not processed yet so the lines after it are left to be processed as usual.
+            editedProcessedOffset = Math.min(processedOffset, scanStart);
+            newLines.addTo(pieces, 0, newLines.indexOf(editedProcessedOffset), 0);
+        } else {
+            var task  = new NewLineScanTask(edited, scanStart, scanEnd + shift, NewLineScanTask.DEFAULT_CHUNK_LENGTH);
+            var found = task.invoke();
+            newLines.addTo(pieces, 0, newLines.indexOf(scanStart), 0);
+            if (found.length != 0) {
+                pieces.add(EliasFanoIntArray.of(found, 0, found.length), 0, found.length, 0);
+            }
+            newLines.addTo(pieces, newLines.indexOf(scanEnd), newLines.indexOf(processedOffset), shift);
+            editedProcessedOffset = processedOffset + shift;
+        }
+        
+        // The pieces are in a balanced tree so the lookups stay O(log pieces) -- they are never compacted as a whole.
+        return new Code(edited, NewLineIndex.of(pieces.build()), editedProcessedOffset);
+    }
+    
+    /**
+     * Returns the code of the content with all the given edits applied.
+     * 
+     * All the edits are on the content of this code (not one after another) so they must not overlap,
+     *   and they can be in any order.
+     * 
+     * @param edits  the edits.
+     * @return       the code of the edited content.
+     */
+    public final Code applyEdits(List<CodeEdit> edits) {
+        var sorted = new ArrayList<>(edits);
+        sorted.sort(Comparator.comparingInt(CodeEdit::offset).thenComparingInt(CodeEdit::end));
+        for (int i = 1; i < sorted.size(); i++) {
+            var previous = sorted.get(i - 1);
+            var edit     = sorted.get(i);
+            if (edit.offset() < previous.end()) {
+                var message = "The edits overlap: %s, %s".formatted(previous, edit);
+                throw new IllegalArgumentException(message);
+            }
+        }
+        
+        // From the last edit so the offsets of the edits before it stay the same.
+        var code = this;
+        for (int i = sorted.size(); --i >= 0;) {
+            code = code.applyEdit(sorted.get(i));
+        }
+        return code;
+    }
+    
+    //== Cursor ==
+    
+    /** @return  a cursor at the first line. */
+    public final LineCursor cursor() {
+        return new LineCursor(this, 0);
+    }
+    
+    /**
+     * Returns a cursor at the given line.
+     * 
+     * @param lineNumber  the line number.
+     * @return            the cursor.
+     */
+    public final LineCursor cursorAt(int lineNumber) {
+        return new LineCursor(this, lineNumber);
+    }
+    
+    /**
+     * Returns the raw end offset of a line already in the index -- without processing or checking.
+     * 
+     * @param lineNumber  the line number which must be less than {@link #knownLineCount()}.
+     * @return            the raw end offset.
+     */
+    final int knownRawEndOffset(int lineNumber) {
+        return newLines.get(lineNumber);
+    }
+    
+    //== Batch ==
+    
+    /**
+     * Converts the given offsets to their line numbers and columns.
+     * 
+     * The column is the number of characters from the start of the line.
+     * Offsets sorted in ascending order are resolved in one sweep over the newlines;
+     *   other offsets are sorted (as packed long keys) first so the sweep is still done once.
+     * No object is created per offset.
+     * 
+     * @param offsets  the offsets -- from 0 to the length of the content.
+     * @param lines    the array to receive the line numbers.
+     * @param columns  the array to receive the columns.
+     */
+    public final void positionsOf(int[] offsets, int[] lines, int[] columns) {
+        int count = offsets.length;
+        checkBatchLength("lines",   count, lines.length);
+        checkBatchLength("columns", count, columns.length);
+        if (count == 0) {
+            return;
+        }
+        
+        int     length    = content.length();
+        int     maxOffset = 0;
+        boolean isSorted  = true;
+        for (int i = 0; i < count; i++) {
+            int offset = offsets[i];
+            if ((offset < 0) || (offset > length)) {
+                var message = "Offset out of bound: offset=%d, length=%d".formatted(offset, length);
+                throw new IndexOutOfBoundsException(message);
+            }
+            isSorted &= (offset >= maxOffset);
+            maxOffset = Math.max(maxOffset, offset);
+        }
+        processLinesToOffset(maxOffset);
+        
+        var newLines = this.newLines;
+        int line     = 0;
+        if (isSorted) {
+            for (int i = 0; i < count; i++) {
+                line       = newLines.indexOf(offsets[i], line);
+                lines[i]   = line;
+                columns[i] = offsets[i] - lineStart(newLines, line);
+            }
+            return;
+        }
+        
+        // The offset is in the high half so sorting the keys sorts the offsets and keeps where they came from.
+        var keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long)offsets[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (long key : keys) {
+            int offset = (int)(key >>> 32);
+            int index  = (int)key;
+            line           = newLines.indexOf(offset, line);
+            lines[index]   = line;
+            columns[index] = offset - lineStart(newLines, line);
+        }
+    }
+    
+    /**
+     * Converts the given line numbers and columns to their offsets.
+     * 
+     * Unlike {@link #positionsOf(int[], int[], int[])}, the lines need no sorting
+     *   as the start of any line is read from the index directly.
+     * 
+     * @param lines    the line numbers.
+     * @param columns  the columns -- from 0 to the length of the line including its newline.
+     * @param offsets  the array to receive the offsets.
+     */
+    public final void offsetsOf(int[] lines, int[] columns, int[] offsets) {
+        int count = lines.length;
+        checkBatchLength("columns", count, columns.length);
+        checkBatchLength("offsets", count, offsets.length);
+        if (count == 0) {
+            return;
+        }
+        
+        int maxLine = 0;
+        for (int line : lines) {
+            if (line < 0) {
+                var message = "Line number must be greater than or equal to 0: lineNumber=" + line;
+                throw new IndexOutOfBoundsException(message);
+            }
+            maxLine = Math.max(maxLine, line);
+        }
+        processToLineCount((maxLine == Integer.MAX_VALUE) ? maxLine : (maxLine + 1));
+        
+        var newLines  = this.newLines;
+        int lineCount = newLines.length() + 1;
+        int length    = content.length();
+        for (int i = 0; i < count; i++) {
+            int line = lines[i];
+            if (line >= lineCount) {
+                var message 
+                        = "Line number must be less than the line count: lineNumber=%s, lineCount=%s"
+                        .formatted(line, lineCount);
+                throw new IndexOutOfBoundsException(message);
+            }
+            
+            int start  = lineStart(newLines, line);
+            int end    = (line < lineCount - 1) ? abs(newLines.get(line)) : length;
+            int column = columns[i];
+            if ((column < 0) || (column > end - start)) {
+                var message = "Column out of bound: lineNumber=%d, column=%d, lineLength=%d"
+                            .formatted(line, column, end - start);
+                throw new IndexOutOfBoundsException(message);
+            }
+            offsets[i] = start + column;
+        }
+    }
+    
+    private static int lineStart(NewLineIndex newLines, int line) {
+        return (line == 0) ? 0 : (abs(newLines.get(line - 1)) + 1);
+    }
+    
+    private static void checkBatchLength(String name, int count, int length) {
+        if (length < count) {
+            var message = "The '%s' array is too short: length=%d, required=%d".formatted(name, length, count);
+            throw new IllegalArgumentException(message);
+        }
+    }
+    
+    //== Finger ==
+    
+    // The finger of the line (which must have a newline) reusing the previous finger for its start when possible.
+    private LineFinger newLineFinger(int lineNumber, int rawEnd, LineFinger previous) {
+        int start
+                = (lineNumber == 0)                                          ? 0
+                : ((previous != null) && (previous.line() == lineNumber - 1)) ? (abs(previous.rawEnd()) + 1)
+                : (abs(newLines.get(lineNumber - 1)) + 1);
+        return new LineFinger(lineNumber, start, rawEnd);
+    }
+    
+    /** A line with a newline, its start offset and its raw (possibly negative) end offset. */
+    private static record LineFinger(int line, int start, int rawEnd) {
+        
+        /** @return  <code>true</code> if the offset is in the line (including its newline). */
+        boolean contains(int offset) {
+            return (offset >= start) && (offset <= abs(rawEnd));
+        }
+    }
+    
+    //== Background ==
+    
+    /** An indexing step that submits the next step until all the lines are indexed. */
+    private final class IndexingStep implements Runnable {
+        
+        private final Executor executor;
+        
+        IndexingStep(Executor executor) {
+            this.executor = executor;
+        }
+        
+        @Override
+        public void run() {
+            if (!processLines(BACKGROUND_STEP_LENGTH).isDone()) {
+                executor.execute(this);
+            }
+        }
+    }
+    
 }
@@ -0,0 +1,27 @@
+package net.nawaman.textj.code;
+
+/**
+ * CodeEdit represents replacing a range of the content of a code with a text.
+ * 
+ * @param offset         the offset of the range to be replaced.
+ * @param deletedLength  the length of the range to be replaced.
+ * @param insertedText   the text to replace the range with.
+ */
+public record CodeEdit(int offset, int deletedLength, CharSequence insertedText) {
+    
+    /** Validates the edit. */
+    public CodeEdit {
+        if ((offset < 0) || (deletedLength < 0)) {
+            var message = "The offset and the deleted length must not be negative: offset=%d, deletedLength=%d"
+                        .formatted(offset, deletedLength);
+            throw new IllegalArgumentException(message);
+        }
+        insertedText = (insertedText == null) ? "" : insertedText;
+    }
+    
+    /** @return  the end offset of the range to be replaced. */
+    public int end() {
+        return offset + deletedLength;
+    }
+    
+}
@@ -0,0 +1,114 @@
+package net.nawaman.textj.code;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Follows a file that is being appended to (such as a log) by appending what is written to a {@link GrowingCode}.
+ * 
+ * Each {@link #poll()} reads only the bytes written since the poll before,
+ *   so it can be called on every tick of a viewer or whenever a file watcher reports a change.
+ * A multi-byte character split between two polls is decoded once all its bytes are written.
+ * Malformed input and unmappable characters are replaced with the charset replacement.
+ * 
+ * A file that shrinks (for example, truncated by a log rotation) cannot be followed further.
+ */
+public final class FileFollower {
+    
+    // The number of bytes read at a time.
+    static final int READ_BUFFER_LENGTH = 64*1024;
+    
+    private final GrowingCode    code;
+    private final Path           path;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer     bytes;
+    private final CharBuffer     chars;
+    private       long           position;
+    
+    FileFollower(GrowingCode code, Path path, Charset charset) {
+        this.code    = Objects.requireNonNull(code);
+        this.path    = Objects.requireNonNull(path);
+        this.decoder = charset
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes   = ByteBuffer.allocate(READ_BUFFER_LENGTH);
+        this.chars   = CharBuffer.allocate(READ_BUFFER_LENGTH);
+    }
+    
+    /** @return  the path of the followed file. */
+    public Path path() {
+        return path;
+    }
+    
+    /** @return  the growing code of the content of the file. */
+    public GrowingCode code() {
+        return code;
+    }
+    
+    /** @return  the code of the content of the file read so far. */
+    public Code snapshot() {
+        return code.snapshot();
+    }
+    
+    /** @return  the number of bytes of the file read so far. */
+    public synchronized long position() {
+        return position;
+    }
+    
+    /**
+     * Reads what was written to the file since the last poll and appends it to the code.
+     * 
+     * @return  the number of characters appended.
+     * @throws IOException  if the file cannot be read or has shrunk.
+     */
+    public synchronized long poll() throws IOException {
+        long appended = 0;
+        try (var channel = FileChannel.open(path, READ)) {
+            long size = channel.size();
+            if (size < position) {
+                var message = "The followed file has shrunk: path=%s, size=%d, position=%d"
+                            .formatted(path, size, position);
+                throw new IOException(message);
+            }
+            
+            while (position < size) {
+                int read = channel.read(bytes, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                
+                bytes.flip();
+                while (true) {
+                    // Never the end of input -- the rest of a split character stays in the buffer for the next read.
+                    var result = decoder.decode(bytes, chars, false);
+                    chars.flip();
+                    code.append(chars.array(), 0, chars.limit());
+                    appended += chars.limit();
+                    chars.clear();
+                    if (result.isUnderflow()) {
+                        break;
+                    }
+                }
+                bytes.compact();
+            }
+        }
+        return appended;
+    }
+    
+    @Override
+    public String toString() {
+        return "FileFollower(path=%s, position=%d)".formatted(path, position());
+    }
+    
+}
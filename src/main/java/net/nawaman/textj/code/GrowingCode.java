@@ -0,0 +1,218 @@
+package net.nawaman.textj.code;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import net.nawaman.textj.text.Str;
+import net.nawaman.textj.text.Text;
+
+/**
+ * A code that can only grow by appending to its content -- such as a log that is still being written.
+ * 
+ * Only the appended characters are scanned for newlines and the newline offsets found before are kept,
+ *   so the cost of an append is proportional to what is appended (and not to the whole content)
+ *   plus the copy of the last leaf it is merged into -- at most {@link #LEAF_MERGE_LENGTH} characters.
+ * A '\r' at the end of the content is a newline of its own until a '\n' is appended right after it
+ *   when the two become one '\r\n'.
+ * 
+ * The content and its lines are read through {@link #snapshot()}, an immutable {@link Code} of the content so far.
+ * A snapshot never changes with the appends after it so its line count and content are always consistent.
+ * Taking a snapshot never locks and never copies the content or the newline offsets -- they are shared.
+ * The content of a snapshot is a rope of the appended leaves (see {@link Text#concat(Text...)})
+ *   so it shares those leaves with the later snapshots without keeping the earlier snapshots reachable.
+ * Small appends (such as a line at a time) are merged into the last leaf until it is {@link #LEAF_MERGE_LENGTH} long.
+ * 
+ * Appending is done by one thread at a time. Snapshots can be taken and read by any number of threads.
+ */
+public final class GrowingCode {
+    
+    /** The length up to which the appended characters are merged into the last leaf of the content. */
+    static final int LEAF_MERGE_LENGTH = 1024;
+    
+    private final Object appendLock = new Object();
+    private final int    compactLineCount;
+    
+    // Only accessed while holding the append lock.
+    // The content is the leaves before the last one and the last leaf which is still being merged into.
+    private NewLineIndex newLines = new NewLineIndex();
+    private Text         leaves   = Str.empty;
+    private char[]       lastLeaf = new char[LEAF_MERGE_LENGTH];
+    private int          lastLeafLength;
+    private int          length;
+    private boolean      hasTrailingCarriageReturn;
+    
+    private volatile Code snapshot = new Code(Str.empty, newLines.prefix(0, NewLineIndex.NO_LAST));
+    
+    /** Constructs an empty growing code. */
+    public GrowingCode() {
+        this.compactLineCount = Math.max(Code.CompactLineCount.orElse(Code.DEFAULT_COMPACT_LINE_COUNT), 1);
+    }
+    
+    /**
+     * Creates a growing code by following the given file from its start.
+     * 
+     * @param path     the path to the file.
+     * @param charset  the charset of the file.
+     * @return         the follower of the file -- call {@link FileFollower#poll()} to append what was written.
+     */
+    public static FileFollower follow(Path path, Charset charset) {
+        return new FileFollower(new GrowingCode(), path, charset);
+    }
+    
+    /** @return  the code of the content appended so far. */
+    public Code snapshot() {
+        return snapshot;
+    }
+    
+    /** @return  the length of the content appended so far. */
+    public int length() {
+        return snapshot.length();
+    }
+    
+    /** @return  the number of lines of the content appended so far. */
+    public int lineCount() {
+        return snapshot.lineCount();
+    }
+    
+    /**
+     * Appends the given text.
+     * 
+     * @param text  the text.
+     * @return      this growing code.
+     */
+    public GrowingCode append(CharSequence text) {
+        if ((text == null) || (text.length() == 0)) {
+            return this;
+        }
+        var chars = text.toString().toCharArray();
+        return append(chars, 0, chars.length);
+    }
+    
+    /**
+     * Appends the given characters.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       this growing code.
+     */
+    public GrowingCode append(char[] chars, int from, int to) {
+        Objects.checkFromToIndex(from, to, chars.length);
+        if (from == to) {
+            return this;
+        }
+        
+        synchronized (appendLock) {
+            int offset = length - from;
+            int index  = from;
+            if (hasTrailingCarriageReturn) {
+                hasTrailingCarriageReturn = false;
+                if (chars[from] == '\n') {
+                    addNewLine(-(offset + from));
+                    index++;
+                } else {
+                    addNewLine(offset + from - 1);
+                }
+            }
+            while ((index = NewLineScanner.indexOfNewLine(chars, index, to)) != -1) {
+                int newLine = offset + index;
+                if (chars[index] == '\r') {
+                    if (index + 1 == to) {
+                        // Not known yet if a '\n' comes next.
+                        hasTrailingCarriageReturn = true;
+                        break;
+                    }
+                    if (chars[index + 1] == '\n') {
+                        index++;
+                        newLine = -(offset + index);
+                    }
+                }
+                addNewLine(newLine);
+                index++;
+            }
+            
+            var content = appendLeaf(chars, from, to);
+            int last    = hasTrailingCarriageReturn ? (length - 1) : NewLineIndex.NO_LAST;
+            snapshot = new Code(content, newLines.prefix(newLines.length(), last));
+        }
+        return this;
+    }
+    
+    /**
+     * Appends all the content read from the given reader -- as it is read.
+     * 
+     * Each chunk read is appended right away so snapshots taken while reading (say, from a pipe) see it.
+     * The reader is not closed.
+     * 
+     * @param reader  the reader.
+     * @return        the number of characters appended.
+     * @throws IOException  if the reader fails.
+     */
+    public long appendFrom(Reader reader) throws IOException {
+        var  buffer = new char[Code.READ_CHUNK_LENGTH];
+        long count  = 0;
+        int  read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            append(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+    
+    /**
+     * Appends all the content read from the given stream -- as it is read.
+     * 
+     * The stream is not closed.
+     * 
+     * @param stream   the stream.
+     * @param charset  the charset of the stream.
+     * @return         the number of characters appended.
+     * @throws IOException  if the stream fails.
+     */
+    public long appendFrom(InputStream stream, Charset charset) throws IOException {
+        return appendFrom(new InputStreamReader(stream, charset));
+    }
+    
+    // Adds the characters to the content and returns the content -- the append lock must be held.
+    private Text appendLeaf(char[] chars, int from, int to) {
+        int appendLength = to - from;
+        length += appendLength;
+        if (lastLeafLength + appendLength > LEAF_MERGE_LENGTH) {
+            if (lastLeafLength != 0) {
+                leaves         = Text.concat(leaves, Text.Str(new String(lastLeaf, 0, lastLeafLength)));
+                lastLeafLength = 0;
+            }
+            if (appendLength >= LEAF_MERGE_LENGTH) {
+                leaves = Text.concat(leaves, Text.Str(new String(chars, from, appendLength)));
+                return leaves;
+            }
+        }
+        
+        System.arraycopy(chars, from, lastLeaf, lastLeafLength, appendLength);
+        lastLeafLength += appendLength;
+        return Text.concat(leaves, Text.Str(new String(lastLeaf, 0, lastLeafLength)));
+    }
+    
+    private void addNewLine(int newLineOffset) {
+        var newLines = this.newLines;
+        newLines.add(newLineOffset);
+        
+        // Compacting returns a new index so the snapshots holding the old one are not affected.
+        int tailLength = newLines.tailLength();
+        if ((tailLength >= compactLineCount) && (tailLength >= newLines.headLength())) {
+            this.newLines = newLines.compact();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        var snapshot = this.snapshot;
+        return "GrowingCode(length=%d, lineCount=%d)".formatted(snapshot.length(), snapshot.lineCount());
+    }
+    
+}
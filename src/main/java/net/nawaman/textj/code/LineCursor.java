@@ -0,0 +1,246 @@
+package net.nawaman.textj.code;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import net.nawaman.textj.text.Part;
+import net.nawaman.textj.text.Text;
+
+/**
+ * A cursor that walks the lines of a code one at a time -- forward or backward.
+ * 
+ * The cursor keeps the current line, its start and end and its newline kind as primitive ints
+ *   so moving to the next or the previous line is O(1) and creates no object.
+ * Lines already in the index of the code are read from it.
+ * Past the index, the cursor scans for the newlines itself in one pass with a reused buffer
+ *   so a walk over a code never indexed does not go through the index one line at a time.
+ * 
+ * A cursor is not thread-safe but any number of cursors can walk the same code.
+ */
+public final class LineCursor {
+    
+    /** The newline kind of the last line -- it has no newline. */
+    public static final int NO_NEWLINE = 0;
+    
+    /** The newline kind of a line ending with '\n'. */
+    public static final int LF = 1;
+    
+    /** The newline kind of a line ending with '\r'. */
+    public static final int CR = 2;
+    
+    /** The newline kind of a line ending with '\r\n'. */
+    public static final int CRLF = 3;
+    
+    // The number of characters copied at a time when scanning.
+    static final int SCAN_BUFFER_LENGTH = 8*1024;
+    
+    private final Code code;
+    private final Text content;
+    private final int  length;
+    
+    private int line;
+    private int start;
+    private int end;
+    private int newLineKind;
+    
+    private char[] buffer;
+    private int    bufferStart;
+    private int    bufferEnd;
+    
+    /**
+     * Returns the number of characters of the given newline kind.
+     * 
+     * @param newLineKind  the newline kind.
+     * @return             the number of characters.
+     */
+    public static int newLineLength(int newLineKind) {
+        return (newLineKind == CRLF) ? 2 : (newLineKind == NO_NEWLINE) ? 0 : 1;
+    }
+    
+    LineCursor(Code code, int lineNumber) {
+        this.code    = code;
+        this.content = code.content();
+        this.length  = content.length();
+        seek(lineNumber);
+    }
+    
+    /** @return  the current line number. */
+    public int line() {
+        return line;
+    }
+    
+    /** @return  the start offset of the current line. */
+    public int start() {
+        return start;
+    }
+    
+    /** @return  the end offset of the current line excluding the newline. */
+    public int end() {
+        return end;
+    }
+    
+    /** @return  the end offset of the current line including the newline. */
+    public int endLn() {
+        return end + newLineLength(newLineKind);
+    }
+    
+    /** @return  the newline kind of the current line -- {@link #NO_NEWLINE}, {@link #LF}, {@link #CR} or {@link #CRLF}. */
+    public int newLineKind() {
+        return newLineKind;
+    }
+    
+    /** @return  the current line as a view of the content. */
+    public Part text() {
+        return code.part(start, end);
+    }
+    
+    /** @return  the current line including the newline as a view of the content. */
+    public Part textLn() {
+        return code.part(start, endLn());
+    }
+    
+    /**
+     * Moves to the given line.
+     * 
+     * @param lineNumber  the line number.
+     * @return            this cursor.
+     */
+    public LineCursor seek(int lineNumber) {
+        int start  = code.startOffset(lineNumber);
+        int rawEnd = code.rawEndOffset(lineNumber);
+        this.line  = lineNumber;
+        this.start = start;
+        setEnd(rawEnd);
+        return this;
+    }
+    
+    /**
+     * Moves to the next line.
+     * 
+     * @return  <code>true</code> if moved or <code>false</code> if the current line is the last line.
+     */
+    public boolean next() {
+        if (newLineKind == NO_NEWLINE) {
+            return false;
+        }
+        
+        line++;
+        start = endLn();
+        if (line < code.knownLineCount()) {
+            setEnd(code.knownRawEndOffset(line));
+        } else {
+            scanForward(start);
+        }
+        return true;
+    }
+    
+    /**
+     * Moves to the previous line.
+     * 
+     * @return  <code>true</code> if moved or <code>false</code> if the current line is the first line.
+     */
+    public boolean prev() {
+        if (line == 0) {
+            return false;
+        }
+        
+        // The line before always ends with the newline just before the current line.
+        int newLineEnd = start - 1;
+        if ((content.charAt(newLineEnd) == '\n') && (newLineEnd > 0) && (content.charAt(newLineEnd - 1) == '\r')) {
+            newLineKind = CRLF;
+            end         = newLineEnd - 1;
+        } else {
+            newLineKind = (content.charAt(newLineEnd) == '\n') ? LF : CR;
+            end         = newLineEnd;
+        }
+        
+        line--;
+        if (line == 0) {
+            start = 0;
+        } else if (line - 1 < code.knownLineCount()) {
+            start = abs(code.knownRawEndOffset(line - 1)) + 1;
+        } else {
+            start = scanBackward(end) + 1;
+        }
+        return true;
+    }
+    
+    @Override
+    public String toString() {
+        return "LineCursor(line=%d, start=%d, end=%d, newLineKind=%d)".formatted(line, start, end, newLineKind);
+    }
+    
+    //== Scanning ==
+    
+    private void setEnd(int rawEnd) {
+        if (rawEnd < 0) {
+            end         = -rawEnd - 1;
+            newLineKind = CRLF;
+        } else if (rawEnd >= length) {
+            end         = length;
+            newLineKind = NO_NEWLINE;
+        } else {
+            end         = rawEnd;
+            newLineKind = (content.charAt(rawEnd) == '\n') ? LF : CR;
+        }
+    }
+    
+    // Finds the end of the line starting at the offset.
+    private void scanForward(int offset) {
+        while (offset < length) {
+            if ((offset < bufferStart) || (offset >= bufferEnd)) {
+                fill(offset, min(offset + SCAN_BUFFER_LENGTH, length));
+            }
+            
+            int index = NewLineScanner.indexOfNewLine(buffer, offset - bufferStart, bufferEnd - bufferStart);
+            if (index == -1) {
+                offset = bufferEnd;
+                continue;
+            }
+            
+            int newLine = bufferStart + index;
+            end = newLine;
+            if (buffer[index] == '\n') {
+                newLineKind = LF;
+            } else {
+                boolean isCrLf = (newLine + 1 < length) && (charAt(newLine + 1) == '\n');
+                newLineKind = isCrLf ? CRLF : CR;
+            }
+            return;
+        }
+        end         = length;
+        newLineKind = NO_NEWLINE;
+    }
+    
+    // Returns the offset of the last newline character before the offset or -1 if there is none.
+    private int scanBackward(int offset) {
+        while (offset > 0) {
+            if ((offset <= bufferStart) || (offset > bufferEnd)) {
+                fill(max(offset - SCAN_BUFFER_LENGTH, 0), offset);
+            }
+            for (int i = offset - 1 - bufferStart; i >= 0; i--) {
+                char ch = buffer[i];
+                if ((ch == '\n') || (ch == '\r')) {
+                    return bufferStart + i;
+                }
+            }
+            offset = bufferStart;
+        }
+        return -1;
+    }
+    
+    private char charAt(int offset) {
+        return ((offset >= bufferStart) && (offset < bufferEnd)) ? buffer[offset - bufferStart] : content.charAt(offset);
+    }
+    
+    private void fill(int from, int to) {
+        if (buffer == null) {
+            buffer = new char[SCAN_BUFFER_LENGTH];
+        }
+        content.getChars(from, to, buffer, 0);
+        bufferStart = from;
+        bufferEnd   = to;
+    }
+    
+}
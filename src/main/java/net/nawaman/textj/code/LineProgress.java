@@ -0,0 +1,27 @@
+package net.nawaman.textj.code;
+
+/**
+ * LineProgress represents how far the lines of a code are processed.
+ * 
+ * @param processedOffset  the offset up to which the content is processed.
+ * @param length           the length of the content.
+ * @param knownLineCount   the number of newlines found so far.
+ */
+public record LineProgress(int processedOffset, int length, int knownLineCount) {
+    
+    /** @return  <code>true</code> if all the lines are processed. */
+    public boolean isDone() {
+        return processedOffset >= length;
+    }
+    
+    /** @return  the number of characters yet to be processed. */
+    public int remaining() {
+        return Math.max(length - processedOffset, 0);
+    }
+    
+    /** @return  the processed portion of the content -- from 0.0 to 1.0. */
+    public double ratio() {
+        return (length == 0) ? 1.0 : Math.min((double)processedOffset / length, 1.0);
+    }
+    
+}
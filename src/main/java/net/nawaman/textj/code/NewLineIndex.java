@@ -0,0 +1,240 @@
+package net.nawaman.textj.code;
+
+import static java.lang.Math.abs;
+
+import functionalj.list.intlist.IntFuncList;
+import net.nawaman.textj.internal.EliasFanoIntArray;
+import net.nawaman.textj.internal.SortedAbsoluteIntArray;
+import net.nawaman.textj.internal.SortedAbsoluteIntIndex;
+import net.nawaman.textj.internal.SplicedAbsoluteIntIndex;
+
+/**
+ * The newline offsets of a code -- a compacted (Elias-Fano encoded) head followed by an appendable tail.
+ * 
+ * The head can also be any other read-only index such as the offsets of a code before an edit (see {@link #of}).
+ * 
+ * Compacting never modifies an index but returns a new one with all the offsets in its head,
+ *   so a reader holding on to the old index still sees a consistent prefix of the offsets.
+ * For the same reason, a read-only view of the offsets added so far can share them (see {@link #prefix(int, int)}).
+ */
+sealed class NewLineIndex implements SortedAbsoluteIntIndex permits NewLineIndex.Prefix {
+    
+    /** The value for no last offset of a prefix. */
+    static final int NO_LAST = Integer.MIN_VALUE;
+    
+    private final SortedAbsoluteIntIndex head;
+    private final int                    headLength;
+    private final int                    headLast;
+    private final SortedAbsoluteIntArray tail;
+    
+    NewLineIndex() {
+        this(EliasFanoIntArray.EMPTY);
+    }
+    
+    private NewLineIndex(SortedAbsoluteIntIndex head) {
+        this.head       = head;
+        this.headLength = head.length();
+        this.headLast   = (headLength == 0) ? -1 : abs(head.get(headLength - 1));
+        this.tail       = new SortedAbsoluteIntArray();
+    }
+    
+    private NewLineIndex(NewLineIndex index) {
+        this.head       = index.head;
+        this.headLength = index.headLength;
+        this.headLast   = index.headLast;
+        this.tail       = index.tail;
+    }
+    
+    /**
+     * Returns an index that starts with the given offsets.
+     * 
+     * @param head  the offsets -- never changed afterward.
+     * @return      the index.
+     */
+    static NewLineIndex of(SortedAbsoluteIntIndex head) {
+        return new NewLineIndex(head);
+    }
+    
+    /** @return  the index with all the offsets compacted. */
+    NewLineIndex compact() {
+        return (tailLength() == 0) ? this : new NewLineIndex(EliasFanoIntArray.of(this));
+    }
+    
+    /**
+     * Returns a read-only view of the first offsets optionally followed by one more offset.
+     * 
+     * The view shares the offsets of this index -- those are never changed once added.
+     * 
+     * @param length  the number of offsets of this index in the view -- not more than its current length.
+     * @param last    the offset after those or {@link #NO_LAST}.
+     * @return        the view.
+     */
+    NewLineIndex prefix(int length, int last) {
+        return new Prefix(this, length, last);
+    }
+    
+    /** @return  the number of compacted (or otherwise read-only) offsets. */
+    int headLength() {
+        return headLength;
+    }
+    
+    /** @return  the number of offsets not yet compacted. */
+    int tailLength() {
+        return tail.length();
+    }
+    
+    /**
+     * Adds the offset -- the caller must make sure it is the only one adding.
+     * 
+     * @param newLineOffset  the newline offset.
+     */
+    void add(int newLineOffset) {
+        tail.add(newLineOffset);
+    }
+    
+    /**
+     * Adds the offsets -- the caller must make sure it is the only one adding.
+     * 
+     * @param newLineOffsets  the newline offsets.
+     * @param from            the first index (inclusive).
+     * @param to              the last index (exclusive).
+     */
+    void addAll(int[] newLineOffsets, int from, int to) {
+        tail.addAll(newLineOffsets, from, to);
+    }
+    
+    /**
+     * Adds a range of the offsets shifted by the given amount to the builder -- sharing them.
+     * 
+     * @param builder  the builder.
+     * @param from     the first index (inclusive).
+     * @param to       the last index (exclusive).
+     * @param shift    the amount added to the offsets.
+     */
+    void addTo(SplicedAbsoluteIntIndex.Builder builder, int from, int to, int shift) {
+        int headEnd = Math.min(to, headLength);
+        if (from < headEnd) {
+            builder.add(head, from, headEnd, shift);
+        }
+        int tailStart = Math.max(from, headLength);
+        if (tailStart < to) {
+            builder.add(tail, tailStart - headLength, to - headLength, shift);
+        }
+    }
+    
+    @Override
+    public int length() {
+        return headLength + tail.length();
+    }
+    
+    @Override
+    public int get(int index) {
+        return (index < headLength) ? head.get(index) : tail.get(index - headLength);
+    }
+    
+    @Override
+    public int indexOf(int needle) {
+        if (abs(needle) <= headLast) {
+            return head.indexOf(needle);
+        }
+        return headLength + tail.indexOf(needle);
+    }
+    
+    /**
+     * Returns the index of the needle searching from the given hint.
+     * 
+     * @param needle  the needle to find.
+     * @param hint    the index where the result is likely to be near.
+     * @return        the index of the needle.
+     */
+    int indexOf(int needle, int hint) {
+        if (abs(needle) <= headLast) {
+            return head.indexOf(needle);
+        }
+        return headLength + tail.indexOf(needle, hint - headLength);
+    }
+    
+    @Override
+    public IntFuncList values() {
+        int length = length();
+        return IntFuncList.range(0, length).map(this::get);
+    }
+    
+    @Override
+    public String toString() {
+        return values().toString();
+    }
+    
+    /** A read-only view of the first offsets of an index and possibly an offset after those. */
+    static final class Prefix extends NewLineIndex {
+        
+        private final int tailLength;
+        private final int prefixLength;
+        private final int last;
+        
+        Prefix(NewLineIndex index, int length, int last) {
+            super(index);
+            if ((length < index.headLength) || (length > index.length())) {
+                var message = "Prefix length out of bound: length=%d, headLength=%d, indexLength=%d"
+                            .formatted(length, index.headLength, index.length());
+                throw new IndexOutOfBoundsException(message);
+            }
+            this.tailLength   = length - index.headLength;
+            this.prefixLength = length;
+            this.last         = last;
+        }
+        
+        @Override
+        int tailLength() {
+            return tailLength;
+        }
+        
+        @Override
+        void add(int newLineOffset) {
+            throw new UnsupportedOperationException("A prefix of the newline offsets is read-only.");
+        }
+        
+        @Override
+        void addAll(int[] newLineOffsets, int from, int to) {
+            throw new UnsupportedOperationException("A prefix of the newline offsets is read-only.");
+        }
+        
+        @Override
+        void addTo(SplicedAbsoluteIntIndex.Builder builder, int from, int to, int shift) {
+            super.addTo(builder, from, Math.min(to, prefixLength), shift);
+            if (to > prefixLength) {
+                // The last offset is only in this view.
+                builder.add(this, Math.max(from, prefixLength), to, shift);
+            }
+        }
+        
+        @Override
+        public int length() {
+            return (last == NO_LAST) ? prefixLength : (prefixLength + 1);
+        }
+        
+        @Override
+        public int get(int index) {
+            return (index < prefixLength) ? super.get(index) : last;
+        }
+        
+        @Override
+        public int indexOf(int needle) {
+            return limit(super.indexOf(needle), needle);
+        }
+        
+        @Override
+        int indexOf(int needle, int hint) {
+            return limit(super.indexOf(needle, Math.min(hint, prefixLength - 1)), needle);
+        }
+        
+        // The shared offsets may go past the prefix so an index there is either of the last offset or the length.
+        private int limit(int index, int needle) {
+            if (index < prefixLength) {
+                return index;
+            }
+            return ((last != NO_LAST) && (abs(needle) <= abs(last))) ? prefixLength : length();
+        }
+    }
+    
+}
@@ -0,0 +1,111 @@
+package net.nawaman.textj.code;
+
+import static java.lang.Math.min;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+import net.nawaman.textj.text.Text;
+
+/**
+ * A fork-join task that finds the newline offsets in a range of a text.
+ * 
+ * The range is split into chunks that are scanned in parallel and the offsets of the chunks are stitched in order.
+ * The offsets follow the encoding of {@link Code} -- the offset of the last character of each newline
+ *   and negative for '\r\n'.
+ * A '\r\n' that straddles two chunks is recorded by the chunk holding the '\r'.
+ */
+final class NewLineScanTask extends RecursiveTask<int[]> {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /** The default number of characters scanned by one task without further splitting. */
+    static final int DEFAULT_CHUNK_LENGTH = 1 << 20;
+    
+    private static final int BUFFER_LENGTH = 8*1024;
+    
+    private final Text content;
+    private final int  scanStart;
+    private final int  from;
+    private final int  to;
+    private final int  chunkLength;
+    
+    /**
+     * Constructs a task to scan the given range.
+     * 
+     * @param content      the text.
+     * @param from         the first offset to scan (inclusive) -- must not be in the middle of a '\r\n'.
+     * @param to           the last offset to scan (exclusive).
+     * @param chunkLength  the number of characters scanned by one task without further splitting.
+     */
+    NewLineScanTask(Text content, int from, int to, int chunkLength) {
+        this(content, from, from, to, Math.max(chunkLength, 2));
+    }
+    
+    private NewLineScanTask(Text content, int scanStart, int from, int to, int chunkLength) {
+        this.content     = content;
+        this.scanStart   = scanStart;
+        this.from        = from;
+        this.to          = to;
+        this.chunkLength = chunkLength;
+    }
+    
+    @Override
+    protected int[] compute() {
+        if ((to - from) <= chunkLength) {
+            return scan();
+        }
+        
+        int mid   = from + (to - from) / 2;
+        var left  = new NewLineScanTask(content, scanStart, from, mid, chunkLength);
+        var right = new NewLineScanTask(content, scanStart, mid,  to,  chunkLength);
+        left.fork();
+        var rightOffsets = right.compute();
+        var leftOffsets  = left.join();
+        
+        var offsets = Arrays.copyOf(leftOffsets, leftOffsets.length + rightOffsets.length);
+        System.arraycopy(rightOffsets, 0, offsets, leftOffsets.length, rightOffsets.length);
+        return offsets;
+    }
+    
+    private int[] scan() {
+        int length  = content.length();
+        var offsets = new int[16];
+        int count   = 0;
+        
+        var buffer = new char[min(BUFFER_LENGTH, to - from)];
+        for (int blockStart = from; blockStart < to; blockStart += buffer.length) {
+            int blockEnd = min(blockStart + buffer.length, to);
+            content.getChars(blockStart, blockEnd, buffer, 0);
+            
+            int index = 0;
+            while ((index = NewLineScanner.indexOfNewLine(buffer, index, blockEnd - blockStart)) != -1) {
+                int     offset    = blockStart + index;
+                int     newLine   = offset;
+                boolean isNewLine = true;
+                if (buffer[index] == '\n') {
+                    // The '\n' of a '\r\n' is recorded with its '\r' -- even when the '\r' is in the previous chunk.
+                    char previous = (index > 0) ? buffer[index - 1]
+                                  : (offset > scanStart) ? content.charAt(offset - 1)
+                                  : 0;
+                    isNewLine = (previous != '\r');
+                } else {
+                    int  nextOffset = offset + 1;
+                    char next       = (nextOffset < blockEnd) ? buffer[index + 1]
+                                    : (nextOffset < length)   ? content.charAt(nextOffset)
+                                    : 0;
+                    newLine = (next == '\n') ? -nextOffset : offset;
+                }
+                if (isNewLine) {
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, count*2);
+                    }
+                    offsets[count++] = newLine;
+                }
+                index++;
+            }
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+    
+}
@@ -0,0 +1,168 @@
+package net.nawaman.textj.code;
+
+/**
+ * Finds newline characters in a block of characters (copied in bulk from the content).
+ * 
+ * The scan is a scalar loop unrolled eight characters per step:
+ *   '\n' (10) and '\r' (13) are the only newline characters not larger than '\r',
+ *   so (ch - ('\r' + 1)) is negative only for a character that might be a newline.
+ * OR-ing those differences of eight characters has its sign bit set if any of them might be a newline,
+ *   so eight newline-free characters cost a single branch.
+ * Other control characters (such as tabs) only send their eight characters to the character-by-character check.
+ * 
+ * An opt-in scan with the incubating Vector API lives in the separate source root <code>src/main/java-vector</code>,
+ *   only built with the profile <code>vector</code> (<code>mvn -Pvector</code>).
+ * It is used when its class is built in and the module <code>jdk.incubator.vector</code> is resolved
+ *   (run with <code>--add-modules jdk.incubator.vector</code>) -- otherwise, the scalar loop is used.
+ */
+final class NewLineScanner {
+    
+    // The class of the opt-in vectorized scan -- only there when built with the profile "vector".
+    private static final String VECTORIZED_CLASS_NAME = "net.nawaman.textj.code.VectorNewLineScanner";
+    
+    /** The vectorized scan or <code>null</code> if it is not built in or the Vector API is not available. */
+    static final Vectorized VECTORIZED = loadVectorized();
+    
+    /** <code>true</code> if the scan uses the Vector API. */
+    static final boolean IS_VECTORIZED = (VECTORIZED != null);
+    
+    private static final int NEWLINE_BOUND = '\r' + 1;
+    
+    private NewLineScanner() {
+    }
+    
+    /** A scan of newline characters that compares many characters at once. */
+    interface Vectorized {
+        
+        /** @return  the index of the first newline character in the range or -1 if there is none. */
+        int indexOfNewLine(char[] chars, int from, int to);
+        
+        /** @return  the index of the last newline character in the range or -1 if there is none. */
+        int lastIndexOfNewLine(char[] chars, int from, int to);
+    }
+    
+    private static Vectorized loadVectorized() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            var vectorized = Class.forName(VECTORIZED_CLASS_NAME).getDeclaredConstructor().newInstance();
+            return (Vectorized)vectorized;
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the index of the first '\n' or '\r' in the given range.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the index of the first newline character or -1 if there is none.
+     */
+    static int indexOfNewLine(char[] chars, int from, int to) {
+        var vectorized = VECTORIZED;
+        return (vectorized != null)
+                ? vectorized.indexOfNewLine(chars, from, to)
+                : scalarIndexOfNewLine(chars, from, to);
+    }
+    
+    /**
+     * Returns the index of the first '\n' or '\r' in the given range -- without the Vector API.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the index of the first newline character or -1 if there is none.
+     */
+    static int scalarIndexOfNewLine(char[] chars, int from, int to) {
+        int i = from;
+        while (true) {
+            for (int last = to - 8; i <= last; i += 8) {
+                int mayBeNewLine
+                        = (chars[i    ] - NEWLINE_BOUND)
+                        | (chars[i + 1] - NEWLINE_BOUND)
+                        | (chars[i + 2] - NEWLINE_BOUND)
+                        | (chars[i + 3] - NEWLINE_BOUND)
+                        | (chars[i + 4] - NEWLINE_BOUND)
+                        | (chars[i + 5] - NEWLINE_BOUND)
+                        | (chars[i + 6] - NEWLINE_BOUND)
+                        | (chars[i + 7] - NEWLINE_BOUND);
+                if (mayBeNewLine < 0) {
+                    break;
+                }
+            }
+            
+            // Either eight characters with a possible newline (such as a tab) or the last few characters.
+            int wordEnd = Math.min(i + 8, to);
+            for (; i < wordEnd; i++) {
+                char ch = chars[i];
+                if ((ch == '\n') || (ch == '\r')) {
+                    return i;
+                }
+            }
+            if (i >= to) {
+                return -1;
+            }
+        }
+    }
+    
+    /**
+     * Returns the index of the last '\n' or '\r' in the given range.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the index of the last newline character or -1 if there is none.
+     */
+    static int lastIndexOfNewLine(char[] chars, int from, int to) {
+        var vectorized = VECTORIZED;
+        return (vectorized != null)
+                ? vectorized.lastIndexOfNewLine(chars, from, to)
+                : scalarLastIndexOfNewLine(chars, from, to);
+    }
+    
+    /**
+     * Returns the index of the last '\n' or '\r' in the given range -- without the Vector API.
+     * 
+     * The range is checked backward eight characters per step the same way as {@link #scalarIndexOfNewLine}.
+     * 
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the index of the last newline character or -1 if there is none.
+     */
+    static int scalarLastIndexOfNewLine(char[] chars, int from, int to) {
+        int i = to;
+        while (true) {
+            for (int first = from + 8; i >= first; i -= 8) {
+                int mayBeNewLine
+                        = (chars[i - 1] - NEWLINE_BOUND)
+                        | (chars[i - 2] - NEWLINE_BOUND)
+                        | (chars[i - 3] - NEWLINE_BOUND)
+                        | (chars[i - 4] - NEWLINE_BOUND)
+                        | (chars[i - 5] - NEWLINE_BOUND)
+                        | (chars[i - 6] - NEWLINE_BOUND)
+                        | (chars[i - 7] - NEWLINE_BOUND)
+                        | (chars[i - 8] - NEWLINE_BOUND);
+                if (mayBeNewLine < 0) {
+                    break;
+                }
+            }
+            
+            // Either eight characters with a possible newline (such as a tab) or the first few characters.
+            int wordStart = Math.max(i - 8, from);
+            for (; i > wordStart; i--) {
+                char ch = chars[i - 1];
+                if ((ch == '\n') || (ch == '\r')) {
+                    return i - 1;
+                }
+            }
+            if (i <= from) {
+                return -1;
+            }
+        }
+    }
+    
+}
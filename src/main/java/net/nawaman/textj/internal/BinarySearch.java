@@ -1,12 +1,20 @@
 package net.nawaman.textj.internal;
 
+import static java.lang.Math.abs;
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 import java.util.function.IntFunction;
 import java.util.function.IntUnaryOperator;
 
 public final class BinarySearch {
     
+    // The range from which the interpolation search finishes with a branchless search.
+    private static final int INTERPOLATION_MIN_RANGE = 16;
+    
+    // The maximum number of interpolation probes before falling back to a branchless search -- guards skewed data.
+    private static final int INTERPOLATION_MAX_PROBES = 8;
+    
     private BinarySearch() {
     }
     
@@ -89,4 +97,168 @@ public final class BinarySearch {
         return finalIndex;
     }
     
+    //== Primitive ==
+    // The values are compared by their absolute values (so the negativity can be used as a flag)
+    //   and each search returns the index of the first value not less than the needle -- or 'to' if none.
+    
+    /**
+     * Performs a branchless binary search.
+     * 
+     * Each step halves the range with a conditional move instead of a branch,
+     *   so the time does not depend on how predictable the comparisons are.
+     * 
+     * @param values  the values sorted by their absolute values.
+     * @param from    the first index (inclusive).
+     * @param to      the last index (exclusive).
+     * @param needle  the needle -- compared by its absolute value.
+     * @return        the index of the first value whose absolute value is not less than the needle.
+     */
+    public static int lowerBound(int[] values, int from, int to, int needle) {
+        int length = to - from;
+        if (length <= 0) {
+            return from;
+        }
+        
+        int absNeedle = abs(needle);
+        int base      = from;
+        while (length > 1) {
+            int half = length >>> 1;
+            base    = (abs(values[base + half]) < absNeedle) ? (base + half) : base;
+            length -= half;
+        }
+        return base + ((abs(values[base]) < absNeedle) ? 1 : 0);
+    }
+    
+    /**
+     * Performs an interpolation search.
+     * 
+     * The probe is placed where the needle would be if the values were evenly spread (such as newline offsets)
+     *   which takes O(log log n) probes for such values.
+     * The search falls back to {@link #lowerBound(int[], int, int, int)} after a few probes
+     *   so unevenly spread values cost no more than O(log n).
+     * 
+     * @param values  the values sorted by their absolute values.
+     * @param from    the first index (inclusive).
+     * @param to      the last index (exclusive).
+     * @param needle  the needle -- compared by its absolute value.
+     * @return        the index of the first value whose absolute value is not less than the needle.
+     */
+    public static int interpolationLowerBound(int[] values, int from, int to, int needle) {
+        int absNeedle = abs(needle);
+        int low       = from;
+        int high      = to;
+        int probes    = 0;
+        while ((high - low > INTERPOLATION_MIN_RANGE) && (probes++ < INTERPOLATION_MAX_PROBES)) {
+            int lowValue = abs(values[low]);
+            if (lowValue >= absNeedle) {
+                return low;
+            }
+            int highValue = abs(values[high - 1]);
+            if (highValue < absNeedle) {
+                return high;
+            }
+            
+            int probe = low + (int)((long)(absNeedle - lowValue)*(high - 1 - low) / (highValue - lowValue));
+            if (abs(values[probe]) < absNeedle) {
+                low = probe + 1;
+            } else {
+                high = probe;
+            }
+        }
+        return lowerBound(values, low, high, absNeedle);
+    }
+    
+    /**
+     * Performs a galloping (exponential) search from the given hint.
+     * 
+     * The range is doubled from the hint until it contains the needle and then searched,
+     *   so it takes O(log d) where d is the distance between the hint and the result.
+     * 
+     * @param values  the values sorted by their absolute values.
+     * @param from    the first index (inclusive).
+     * @param to      the last index (exclusive).
+     * @param needle  the needle -- compared by its absolute value.
+     * @param hint    the index where the result is likely to be near.
+     * @return        the index of the first value whose absolute value is not less than the needle.
+     */
+    public static int gallopLowerBound(int[] values, int from, int to, int needle, int hint) {
+        if (from >= to) {
+            return from;
+        }
+        
+        int absNeedle = abs(needle);
+        hint = min(max(hint, from), to - 1);
+        if (abs(values[hint]) < absNeedle) {
+            int low  = hint + 1;
+            int step = 1;
+            while ((step < to - hint) && (abs(values[hint + step]) < absNeedle)) {
+                low    = hint + step + 1;
+                step <<= 1;
+            }
+            int high = (step < to - hint) ? (hint + step) : to;
+            return lowerBound(values, low, high, absNeedle);
+        } else {
+            int high = hint;
+            int step = 1;
+            while ((step <= hint - from) && (abs(values[hint - step]) >= absNeedle)) {
+                high   = hint - step;
+                step <<= 1;
+            }
+            int low = (step <= hint - from) ? (hint - step + 1) : from;
+            return lowerBound(values, low, high, absNeedle);
+        }
+    }
+    
+    //== Eytzinger ==
+    
+    /**
+     * Lays out the given sorted values in the Eytzinger (breadth-first) order.
+     * 
+     * The first probes of every search are then at the start of the layout and stay in the cache,
+     *   which pays off for a large table that is searched many times (see {@link #eytzingerLowerBound(long[], int)}).
+     * Each entry keeps the absolute value in its high half and its index (relative to 'from') in its low half.
+     * 
+     * @param values  the values sorted by their absolute values.
+     * @param from    the first index (inclusive).
+     * @param to      the last index (exclusive).
+     * @return        the layout.
+     */
+    public static long[] eytzinger(int[] values, int from, int to) {
+        int length = to - from;
+        var layout = new long[length + 1];
+        layout[0] = length;
+        fillEytzinger(values, from, 0, layout, 1);
+        return layout;
+    }
+    
+    // Fills the subtree at the node in order -- returns the next index (relative to from) to fill with.
+    private static int fillEytzinger(int[] values, int from, int index, long[] layout, int node) {
+        if (node < layout.length) {
+            index = fillEytzinger(values, from, index, layout, 2*node);
+            layout[node] = ((long)abs(values[from + index]) << 32) | index;
+            index = fillEytzinger(values, from, index + 1, layout, 2*node + 1);
+        }
+        return index;
+    }
+    
+    /**
+     * Searches the Eytzinger layout without branching on the comparisons.
+     * 
+     * @param layout  the layout from {@link #eytzinger(int[], int, int)}.
+     * @param needle  the needle -- compared by its absolute value.
+     * @return        the index (relative to 'from') of the first value whose absolute value is not less than the needle.
+     */
+    public static int eytzingerLowerBound(long[] layout, int needle) {
+        long absNeedle = abs(needle);
+        int  length    = (int)layout[0];
+        int  node      = 1;
+        while (node <= length) {
+            node = 2*node + (((layout[node] >>> 32) < absNeedle) ? 1 : 0);
+        }
+        
+        // Drop the right turns taken after the last left turn -- the node of that left turn is the result.
+        node >>>= Integer.numberOfTrailingZeros(~node) + 1;
+        return (node == 0) ? length : (int)layout[node];
+    }
+    
 }
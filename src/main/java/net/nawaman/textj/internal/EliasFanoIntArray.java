@@ -0,0 +1,225 @@
+package net.nawaman.textj.internal;
+
+import static java.lang.Math.abs;
+
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+
+import functionalj.list.intlist.IntFuncList;
+
+/**
+ * An immutable Elias-Fano encoded array of ints sorted by their absolute values.
+ * 
+ * Each absolute value is split into its low bits, which are packed as is,
+ *   and its high bits, which are stored in unary as gaps in a bit vector.
+ * That takes about 2 + log2(max/length) bits per value instead of 32.
+ * The negativity of each value is kept in a separate bitmap.
+ * 
+ * The position of every {@value #SAMPLE_RATE}-th one and zero of the high bits are sampled,
+ *   so getting a value (select) only scans a few words
+ *   and finding a value (rank) only scans the values sharing its high bits.
+ */
+public final class EliasFanoIntArray implements SortedAbsoluteIntIndex {
+    
+    /** An empty array. */
+    public static final EliasFanoIntArray EMPTY = new EliasFanoIntArray(i -> 0, 0);
+    
+    // Every this-many-th one and zero of the high bits are sampled.
+    static final int SAMPLE_RATE = 64;
+    
+    private final int    length;
+    private final int    lowBitCount;
+    private final long   lowMask;
+    private final long[] lows;
+    private final long[] highs;
+    private final int[]  oneSamples;
+    private final int[]  zeroSamples;
+    private final long[] negatives;
+    private final int    maxValue;
+    
+    /**
+     * Encodes the given index.
+     * 
+     * @param index  the index.
+     * @return       the encoded index.
+     */
+    public static EliasFanoIntArray of(SortedAbsoluteIntIndex index) {
+        if (index instanceof EliasFanoIntArray array) {
+            return array;
+        }
+        return new EliasFanoIntArray(index::get, index.length());
+    }
+    
+    /**
+     * Encodes the given values.
+     * 
+     * @param values  the values -- the absolute values must not decrease.
+     * @param from    the first index (inclusive).
+     * @param to      the last index (exclusive).
+     * @return        the encoded values.
+     */
+    public static EliasFanoIntArray of(int[] values, int from, int to) {
+        Objects.checkFromToIndex(from, to, values.length);
+        return new EliasFanoIntArray(i -> values[from + i], to - from);
+    }
+    
+    private EliasFanoIntArray(IntUnaryOperator valueAt, int length) {
+        this.length   = length;
+        this.maxValue = (length == 0) ? 0 : abs(valueAt.applyAsInt(length - 1));
+        
+        long quotient = (length == 0) ? 0 : (maxValue / length);
+        this.lowBitCount = (quotient == 0) ? 0 : (63 - Long.numberOfLeadingZeros(quotient));
+        this.lowMask     = (1L << lowBitCount) - 1;
+        
+        long highBitCount = (long)length + (maxValue >>> lowBitCount) + 1;
+        this.lows      = new long[(int)(((long)length*lowBitCount + 63) >>> 6)];
+        this.highs     = new long[(int)((highBitCount + 63) >>> 6)];
+        this.negatives = new long[(length + 63) >>> 6];
+        
+        int previous = 0;
+        for (int i = 0; i < length; i++) {
+            int value    = valueAt.applyAsInt(i);
+            int absValue = abs(value);
+            if (absValue < previous) {
+                var message = "The value %d at %d is less than the value before it.".formatted(value, i);
+                throw new IllegalArgumentException(message);
+            }
+            previous = absValue;
+            
+            if (value < 0) {
+                negatives[i >>> 6] |= 1L << i;
+            }
+            setLow(i, absValue & lowMask);
+            long highPosition = (long)(absValue >>> lowBitCount) + i;
+            highs[(int)(highPosition >>> 6)] |= 1L << highPosition;
+        }
+        
+        this.oneSamples  = samples(highs, highBitCount, length, false);
+        this.zeroSamples = samples(highs, highBitCount, (maxValue >>> lowBitCount) + 1, true);
+    }
+    
+    private static int[] samples(long[] bits, long bitCount, int count, boolean isZero) {
+        var samples = new int[(count + SAMPLE_RATE - 1) / SAMPLE_RATE];
+        int found   = 0;
+        for (int position = 0; (position < bitCount) && (found < count); position++) {
+            boolean isOne = (bits[position >>> 6] & (1L << position)) != 0;
+            if (isOne != isZero) {
+                if ((found % SAMPLE_RATE) == 0) {
+                    samples[found / SAMPLE_RATE] = position;
+                }
+                found++;
+            }
+        }
+        return samples;
+    }
+    
+    @Override
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public int get(int index) {
+        if ((index < 0) || (index >= length)) {
+            throw new ArrayIndexOutOfBoundsException("Index out of bound: " + index);
+        }
+        
+        long high  = select(index, false) - index;
+        int  value = (int)((high << lowBitCount) | low(index));
+        return ((negatives[index >>> 6] & (1L << index)) != 0) ? -value : value;
+    }
+    
+    @Override
+    public int indexOf(int needle) {
+        int absNeedle = abs(needle);
+        if ((length == 0) || (absNeedle > maxValue)) {
+            return length;
+        }
+        
+        // The values with the same high bits are between the (high - 1)-th and the high-th zero.
+        int  high      = absNeedle >>> lowBitCount;
+        int  position  = (high == 0) ? 0 : (select(high - 1, true) + 1);
+        int  index     = position - high;
+        long lowNeedle = absNeedle & lowMask;
+        while ((index < length) && ((highs[position >>> 6] & (1L << position)) != 0)) {
+            if (low(index) >= lowNeedle) {
+                return index;
+            }
+            index++;
+            position++;
+        }
+        return index;
+    }
+    
+    @Override
+    public IntFuncList values() {
+        return IntFuncList.range(0, length).map(this::get);
+    }
+    
+    /** @return  the number of bits used to keep the values. */
+    public long bitCount() {
+        return ((long)lows.length + highs.length + negatives.length)*Long.SIZE
+             + ((long)oneSamples.length + zeroSamples.length)*Integer.SIZE;
+    }
+    
+    @Override
+    public String toString() {
+        return values().toString();
+    }
+    
+    //== Bits ==
+    
+    private long low(int index) {
+        if (lowBitCount == 0) {
+            return 0;
+        }
+        long bitIndex = (long)index*lowBitCount;
+        int  word     = (int)(bitIndex >>> 6);
+        int  shift    = (int)(bitIndex & 63);
+        long bits     = lows[word] >>> shift;
+        if (shift + lowBitCount > 64) {
+            bits |= lows[word + 1] << (64 - shift);
+        }
+        return bits & lowMask;
+    }
+    
+    private void setLow(int index, long bits) {
+        if (lowBitCount == 0) {
+            return;
+        }
+        long bitIndex = (long)index*lowBitCount;
+        int  word     = (int)(bitIndex >>> 6);
+        int  shift    = (int)(bitIndex & 63);
+        lows[word] |= bits << shift;
+        if (shift + lowBitCount > 64) {
+            lows[word + 1] |= bits >>> (64 - shift);
+        }
+    }
+    
+    // Returns the position of the rank-th (0-based) one (or zero) of the high bits.
+    private int select(int rank, boolean isZero) {
+        var samples  = isZero ? zeroSamples : oneSamples;
+        int position = samples[rank / SAMPLE_RATE];
+        int left     = rank % SAMPLE_RATE;
+        
+        int  wordIndex = position >>> 6;
+        long word      = bitsOf(wordIndex, isZero) & (-1L << position);
+        int  count     = Long.bitCount(word);
+        while (left >= count) {
+            left -= count;
+            wordIndex++;
+            word  = bitsOf(wordIndex, isZero);
+            count = Long.bitCount(word);
+        }
+        for (int i = 0; i < left; i++) {
+            word &= word - 1;
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+    
+    private long bitsOf(int wordIndex, boolean isZero) {
+        long word = highs[wordIndex];
+        return isZero ? ~word : word;
+    }
+    
+}
@@ -0,0 +1,130 @@
+package net.nawaman.textj.internal;
+
+/**
+ * A polynomial rolling hash of characters modulo the Mersenne prime 2^61 - 1.
+ * 
+ * The hash of a text c[0], c[1], ..., c[n-1] is v[0]*B^(n-1) + v[1]*B^(n-2) + ... + v[n-1] (mod 2^61 - 1)
+ *   where v[i] = c[i] + 1 -- no character hashes to zero so leading '\0's still change the hash.
+ * The base and the modulo are fixed so the hash is stable across runs and JVMs.
+ * 
+ * The hash is composable -- the hash of a concatenation can be computed from the hashes of its parts
+ *   and the length of the right part without looking at the characters again.
+ */
+public final class PolynomialHash {
+    
+    /** The modulo (2^61 - 1). */
+    public static final long MODULO = (1L << 61) - 1;
+    
+    /** The base. */
+    public static final long BASE = 0x1F3D5B79A2C4E687L % MODULO;
+    
+    /** The hash of an empty text. */
+    public static final long EMPTY = 0L;
+    
+    private static final int    POWER_CACHE_LENGTH = 1024;
+    private static final long[] POWERS             = new long[POWER_CACHE_LENGTH];
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWER_CACHE_LENGTH; i++) {
+            POWERS[i] = multiply(POWERS[i - 1], BASE);
+        }
+    }
+    
+    private PolynomialHash() {
+    }
+    
+    /**
+     * Returns the hash of the text after appending the given character.
+     * 
+     * @param hash  the hash of the text.
+     * @param ch    the character to append.
+     * @return      the hash of the text with the character appended.
+     */
+    public static long append(long hash, char ch) {
+        return add(multiply(hash, BASE), ch + 1);
+    }
+    
+    /**
+     * Returns the hash of the given characters.
+     * 
+     * @param hash   the hash of the text to append to.
+     * @param chars  the characters.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the hash of the text with the characters appended.
+     */
+    public static long append(long hash, char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            hash = add(multiply(hash, BASE), chars[i] + 1);
+        }
+        return hash;
+    }
+    
+    /**
+     * Returns the hash of the concatenation of two texts.
+     * 
+     * The right hash already includes the +1 of each of its characters so only the left hash is shifted.
+     * 
+     * @param leftHash     the hash of the left text.
+     * @param rightHash    the hash of the right text.
+     * @param rightLength  the length of the right text.
+     * @return             the hash of the concatenated text.
+     */
+    public static long concat(long leftHash, long rightHash, int rightLength) {
+        return add(multiply(leftHash, power(rightLength)), rightHash);
+    }
+    
+    /**
+     * Returns the hash of the suffix of a text given the hash of the whole text and the hash of its prefix.
+     * 
+     * @param hash          the hash of the whole text.
+     * @param prefixHash    the hash of the prefix.
+     * @param suffixLength  the length of the suffix.
+     * @return              the hash of the suffix.
+     */
+    public static long suffix(long hash, long prefixHash, int suffixLength) {
+        return subtract(hash, multiply(prefixHash, power(suffixLength)));
+    }
+    
+    /**
+     * Returns the base to the given power.
+     * 
+     * @param exponent  the non-negative exponent.
+     * @return          BASE^exponent (mod 2^61 - 1).
+     */
+    public static long power(int exponent) {
+        if (exponent < POWER_CACHE_LENGTH) {
+            return POWERS[exponent];
+        }
+        
+        long result = 1;
+        long base   = BASE;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0) {
+                result = multiply(result, base);
+            }
+            base       = multiply(base, base);
+            exponent >>>= 1;
+        }
+        return result;
+    }
+    
+    static long add(long first, long second) {
+        long sum = first + second;
+        return (sum >= MODULO) ? (sum - MODULO) : sum;
+    }
+    
+    static long subtract(long first, long second) {
+        long difference = first - second;
+        return (difference < 0) ? (difference + MODULO) : difference;
+    }
+    
+    static long multiply(long first, long second) {
+        long high   = Math.multiplyHigh(first, second);
+        long low    = first * second;
+        long result = (low & MODULO) + ((low >>> 61) | (high << 3));
+        result = (result & MODULO) + (result >>> 61);
+        return (result >= MODULO) ? (result - MODULO) : result;
+    }
+    
+}
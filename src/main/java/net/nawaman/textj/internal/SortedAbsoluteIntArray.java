@@ -3,13 +3,9 @@ package net.nawaman.textj.internal;
 import static java.lang.Math.abs;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
-import static net.nawaman.textj.internal.BinarySearch.findIndex;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.IntFunction;
-import java.util.function.IntUnaryOperator;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.Objects;
 
 import functionalj.list.FuncList;
 import functionalj.list.intlist.IntFuncList;
@@ -23,13 +19,27 @@ import functionalj.ref.Ref;
  * 
  * As the incremental requirement is done on the absolute value of each value,
  *   the negativity can be used as a flag to indicate a special value.
+ * 
+ * The values are kept in primitive arrays that double in length -- the first one is of the array length.
+ * So there are only a few of them, the array of an index is found with a couple of bit operations
+ *   and the values are never copied when the array grows.
+ * 
+ * The array supports one writer and any number of concurrent readers without locking.
+ * The values are kept in append-only arrays and the length is published (volatile) after the value is written,
+ *   so a reader that reads the length first always sees all the values up to that length.
+ * Concurrent writers must be serialized by the caller.
  */
-public class SortedAbsoluteIntArray {
+public class SortedAbsoluteIntArray implements SortedAbsoluteIntIndex {
     
     /** The default initial list capacity. */
     public static int DEFAULT_INITIAL_LIST_CAPACITY = 16;
     /** The default array length. */
     public static int DEFAULT_ARRAY_LENGTH = 32;
+    /** The maximum length of the first array. */
+    public static int MAX_ARRAY_LENGTH = 64*1024;
+    
+    // The length from which an array is searched by interpolation -- shorter ones are searched branchlessly.
+    static final int INTERPOLATION_THRESHOLD = 1024;
     
     /** The reference to the initial list capacity. */
     public static Ref<Integer> DefaultInitialListCapacity = Ref.ofValue(DEFAULT_INITIAL_LIST_CAPACITY);
@@ -37,13 +47,13 @@ public class SortedAbsoluteIntArray {
     /** The reference to the array length. */
     public static Ref<Integer> DefaultArrayLength = Ref.ofValue(DEFAULT_ARRAY_LENGTH);
     
-    private final List<int[]> values;
-    private final int         arrayLength;
+    private final int arrayLength;
+    private final int arrayLengthShift;
     
-    private int nextIndexInArray = 0;
-    private int latestValue      = 0;
-    
-    private final IntFunction<IntUnaryOperator> indexAt;
+    // The directory is replaced (never modified) when it grows -- published before the length.
+    private volatile int[][] arrays;
+    private volatile int     length      = 0;
+    private          int     latestValue = 0;
     
     /** Construct a SortedAbsoluteIntArray with the default initial list capacity and array length. */
     public SortedAbsoluteIntArray() {
@@ -54,49 +64,42 @@ public class SortedAbsoluteIntArray {
     /**
      * Construct a SortedAbsoluteIntArray with the given initial list capacity and array length.
      * 
+     * The array length is rounded up to a power of two.
+     * 
      * @param initialListCapacity  the initial list capacity.
-     * @param arrayLength          the array length.
+     * @param arrayLength          the length of the first array.
      */
     public SortedAbsoluteIntArray(int initialListCapacity, int arrayLength) {
         initialListCapacity = min(max(initialListCapacity, 2), DEFAULT_INITIAL_LIST_CAPACITY);
-        this.values = new ArrayList<>(initialListCapacity);
+        this.arrays = new int[initialListCapacity][];
         
-        arrayLength = min(max(arrayLength, 2), DEFAULT_ARRAY_LENGTH);
-        this.arrayLength = arrayLength;
-        
-        this.indexAt = i -> j -> abs(values.get(i)[j]);
+        arrayLength = min(max(arrayLength, 2), MAX_ARRAY_LENGTH);
+        this.arrayLengthShift = 32 - Integer.numberOfLeadingZeros(arrayLength - 1);
+        this.arrayLength      = 1 << arrayLengthShift;
     }
     
-    /**
-     * Construct a SortedAbsoluteIntArray with the given initial list capacity and
-     * the default array length.
-     * 
-     * @param initialListCapacity  the initial list capacity.
-     */
+    /** @return  the length of the first array. */
     final int arrayLength() {
         return arrayLength;
     }
     
-    /**
-     * Construct a SortedAbsoluteIntArray with the default initial list capacity and
-     * the given array length.
-     * 
-     * @param arrayLength  the array length.
-     */
+    /** @return  the index in the last array after the last value -- 0 when there is no value. */
     final int nextIndexInArray() {
-        return nextIndexInArray;
+        int length = this.length;
+        if (length == 0) {
+            return 0;
+        }
+        int arrayIndex = arrayIndexOf(length - 1);
+        return length - arrayStart(arrayIndex);
     }
     
-    /**
-     * Construct a SortedAbsoluteIntArray with the given initial list capacity and
-     * the given array length.
-     * 
-     * @param initialListCapacity  the initial list capacity.
-     * @param arrayLength          the array length.
-     */
+    /** @return  the arrays in use including the unused space. */
     final String xray() {
-        return FuncList.from(values)
-                .map(IntFuncList::ints)
+        int length     = this.length;
+        var arrays     = this.arrays;
+        int arrayCount = (length == 0) ? 0 : (arrayIndexOf(length - 1) + 1);
+        return FuncList.from(Arrays.asList(arrays).subList(0, arrayCount))
+                .map(IntFuncList::of)
                 .toString();
     }
     
@@ -108,28 +111,85 @@ public class SortedAbsoluteIntArray {
      * @param value  the value to add.
      */
     public final void add(int value) {
-       if ((abs(value) <= abs(latestValue)) && (value != 0) && (latestValue != 0)) {
-            var message = "The value " + value + " is not larger than the last value " + latestValue + ".";
-            throw new IllegalArgumentException(message);
-        }
-        
+        checkIncrement(value);
         latestValue = value;
         
-        if (nextIndexInArray >= arrayLength) {
-            nextIndexInArray = 0;
-            values.add(new int[arrayLength]);
-        }
+        int index = length;
+        var array = arrayFor(index);
+        array[index - arrayStart(arrayIndexOf(index))] = value;
         
-        int lastLine = values.size();
-        if (lastLine == 0) {
-            values.add(new int[arrayLength]);
-            lastLine = 1;
+        this.length = index + 1;
+    }
+    
+    /**
+     * Adds the given values to the array.
+     * 
+     * The values are checked and copied in bulk and are all published at once.
+     * The absolute value of each value must be larger than the one before it.
+     * 
+     * @param values  the values.
+     * @param from    the first index (inclusive).
+     * @param to      the last index (exclusive).
+     */
+    public final void addAll(int[] values, int from, int to) {
+        Objects.checkFromToIndex(from, to, values.length);
+        int latest = latestValue;
+        for (int i = from; i < to; i++) {
+            int value = values[i];
+            if ((abs(value) <= abs(latest)) && (value != 0) && (latest != 0)) {
+                throw notIncremental(value, latest);
+            }
+            latest = value;
         }
         
-        var array = values.get(lastLine - 1);
-        array[nextIndexInArray] = value;
+        int index = length;
+        while (from < to) {
+            var array  = arrayFor(index);
+            int offset = index - arrayStart(arrayIndexOf(index));
+            int count  = min(array.length - offset, to - from);
+            System.arraycopy(values, from, array, offset, count);
+            from  += count;
+            index += count;
+        }
         
-        nextIndexInArray++; 
+        latestValue = latest;
+        this.length = index;
+    }
+    
+    private void checkIncrement(int value) {
+        if ((abs(value) <= abs(latestValue)) && (value != 0) && (latestValue != 0)) {
+            throw notIncremental(value, latestValue);
+        }
+    }
+    
+    private static IllegalArgumentException notIncremental(int value, int latestValue) {
+        var message = "The value " + value + " is not larger than the last value " + latestValue + ".";
+        return new IllegalArgumentException(message);
+    }
+    
+    // Returns the array to hold the value at the index -- allocating it (and publishing the directory) as needed.
+    private int[] arrayFor(int index) {
+        int arrayIndex = arrayIndexOf(index);
+        var arrays     = this.arrays;
+        if (arrayIndex >= arrays.length) {
+            arrays      = Arrays.copyOf(arrays, max(arrays.length*2, arrayIndex + 1));
+            this.arrays = arrays;
+        }
+        var array = arrays[arrayIndex];
+        if (array == null) {
+            array = new int[Math.toIntExact((long)arrayLength << arrayIndex)];
+            arrays[arrayIndex] = array;
+        }
+        return array;
+    }
+    
+    // The array k holds (arrayLength << k) values starting at arrayLength*(2^k - 1).
+    private int arrayIndexOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> arrayLengthShift) + 1);
+    }
+    
+    private int arrayStart(int arrayIndex) {
+        return (int)(((1L << arrayIndex) - 1) << arrayLengthShift);
     }
     
     /**
@@ -137,13 +197,9 @@ public class SortedAbsoluteIntArray {
      * 
      * @return  the count of values in the array.
      */
+    @Override
     public final int length() {
-        if (nextIndexInArray == 0) {
-            return 0;
-        }
-        
-        int count = (values.size() - 1)*arrayLength + nextIndexInArray;
-        return count;
+        return length;
     }
     
     /**
@@ -152,20 +208,15 @@ public class SortedAbsoluteIntArray {
      * @param index  the index of the value to get.
      * @return       the value at the given index in the array.
      */
+    @Override
     public final int get(int index) {
-        int arrayCount = values.size();
-        if (arrayCount == 0) {
+        int length = this.length;
+        if ((index < 0) || (index >= length)) {
             throw new ArrayIndexOutOfBoundsException("Index out of bound: " + index);
         }
         
-        int lineIndex   = index / arrayLength;
-        int columnIndex = index % arrayLength;
-        if (lineIndex >= arrayCount) {
-            throw new ArrayIndexOutOfBoundsException("Index out of bound: " + index);
-        }
-        
-        var array = values.get(lineIndex);
-        return array[columnIndex];
+        int arrayIndex = arrayIndexOf(index);
+        return arrays[arrayIndex][index - arrayStart(arrayIndex)];
     }
     
     /**
@@ -173,10 +224,19 @@ public class SortedAbsoluteIntArray {
      * 
      * @return  the values in the array
      */
+    @Override
     public final IntFuncList values() {
-        var lineCount = length();
-        return IntFuncList.from(values.stream().flatMapToInt(array -> IntStream.of(array)))
-                .limit(lineCount);
+        int length = this.length;
+        var arrays = this.arrays;
+        var values = new int[length];
+        int index  = 0;
+        for (int arrayIndex = 0; index < length; arrayIndex++) {
+            var array = arrays[arrayIndex];
+            int count = min(array.length, length - index);
+            System.arraycopy(array, 0, values, index, count);
+            index += count;
+        }
+        return IntFuncList.of(values);
     }
     
     /**
@@ -186,16 +246,61 @@ public class SortedAbsoluteIntArray {
      * @param  needle  the needle to find.
      * @return         the index of the needle in the array.
      */
+    @Override
     public final int indexOf(int needle) {
-        int valueSize = values.size();
-        if (valueSize == 0) {
+        int length = this.length;
+        if (length == 0) {
             return 0;
         }
         
-        int absNeedle    = abs(needle);
-        var subStopIndex = (IntUnaryOperator)(i -> (i == (valueSize - 1)) ? nextIndexInArray : arrayLength);
-        int index        = findIndex(indexAt, valueSize, arrayLength, subStopIndex, absNeedle);
-        return index;
+        // Most of the values are in the last arrays as each array is twice as long as the one before.
+        int absNeedle  = abs(needle);
+        var arrays     = this.arrays;
+        int arrayIndex = arrayIndexOf(length - 1);
+        while ((arrayIndex > 0) && (abs(arrays[arrayIndex][0]) >= absNeedle)) {
+            arrayIndex--;
+        }
+        
+        // The values such as the offsets are often evenly spread so a long array is searched by interpolation.
+        int start = arrayStart(arrayIndex);
+        var array = arrays[arrayIndex];
+        int stop  = min(array.length, length - start);
+        int index
+                = (stop >= INTERPOLATION_THRESHOLD)
+                ? BinarySearch.interpolationLowerBound(array, 0, stop, absNeedle)
+                : BinarySearch.lowerBound(array, 0, stop, absNeedle);
+        return start + index;
+    }
+    
+    /**
+     * Returns the index of the needle in the array searching from the given hint.
+     * 
+     * The search gallops from the hint so it is fast when the result is near the hint --
+     *   such as when looking up the offsets one after another.
+     * 
+     * @param  needle  the needle to find.
+     * @param  hint    the index where the result is likely to be near.
+     * @return         the index of the needle in the array.
+     * @see #indexOf(int)
+     */
+    public final int indexOf(int needle, int hint) {
+        int length = this.length;
+        if ((length == 0) || (hint < 0) || (hint >= length)) {
+            return indexOf(needle);
+        }
+        
+        // Only gallop within the array of the hint -- the rest are found by the regular search.
+        int arrayIndex = arrayIndexOf(hint);
+        int start      = arrayStart(arrayIndex);
+        var array      = arrays[arrayIndex];
+        int stop       = min(array.length, length - start);
+        int absNeedle  = abs(needle);
+        boolean isAfterStart = (arrayIndex == 0)         || (abs(array[0])        < absNeedle);
+        boolean isBeforeStop = (start + stop == length)  || (abs(array[stop - 1]) >= absNeedle);
+        if (!isAfterStart || !isBeforeStop) {
+            return indexOf(needle);
+        }
+        return start + BinarySearch.gallopLowerBound(array, 0, stop, absNeedle, hint - start);
     }
     
     /**
@@ -203,9 +308,9 @@ public class SortedAbsoluteIntArray {
      * 
      * @return  <code>true</code> if the array is empty, otherwise <code>false</code>.
      */
+    @Override
     public final boolean isEmpty() {
-        int valueSize = values.size();
-        return (valueSize == 0);
+        return (length == 0);
     }
     
     @Override
@@ -0,0 +1,51 @@
+package net.nawaman.textj.internal;
+
+import functionalj.list.intlist.IntFuncList;
+
+/**
+ * A read-only view of ints sorted by their absolute values.
+ * 
+ * The negativity of a value is a flag that does not affect the order.
+ */
+public interface SortedAbsoluteIntIndex {
+    
+    /**
+     * Returns the count of values.
+     * 
+     * @return  the count of values.
+     */
+    public int length();
+    
+    /**
+     * Returns the value at the given index.
+     * 
+     * @param index  the index of the value to get.
+     * @return       the value at the given index.
+     */
+    public int get(int index);
+    
+    /**
+     * Returns the index of the first value whose absolute value is not less than the absolute value of the needle.
+     * 
+     * @param  needle  the needle to find.
+     * @return         the index of the needle or the length if all the values are less than the needle.
+     */
+    public int indexOf(int needle);
+    
+    /**
+     * Returns the values.
+     * 
+     * @return  the values.
+     */
+    public IntFuncList values();
+    
+    /**
+     * Returns if there is no value.
+     * 
+     * @return  <code>true</code> if there is no value, otherwise <code>false</code>.
+     */
+    public default boolean isEmpty() {
+        return length() == 0;
+    }
+    
+}
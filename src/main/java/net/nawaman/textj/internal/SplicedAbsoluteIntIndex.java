@@ -0,0 +1,340 @@
+package net.nawaman.textj.internal;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+
+import java.util.Objects;
+
+import functionalj.list.intlist.IntFuncList;
+
+/**
+ * An immutable index of ints sorted by their absolute values made of pieces of other indexes.
+ * 
+ * Each piece is a range of another index with all its absolute values shifted by the same amount
+ *   (the negativity of each value is kept), so a range of values can be moved without touching them.
+ * For example, the newline offsets after an edit are those before the edit and those after it shifted
+ *   by the change in length -- both shared with the index before the edit.
+ * 
+ * The pieces are kept in a height-balanced (AVL) tree (like the rope of a text)
+ *   where each node carries the number of values, the last absolute value and a shift of its subtree.
+ * So getting a value, finding a value and adding a range of another spliced index (with or without a shift)
+ *   all take O(log pieces) no matter how many pieces there are -- the pieces never need to be compacted.
+ * 
+ * A builder may be given a merge length -- two neighbouring pieces no longer than that (together) are merged
+ *   into one piece of their values, so many small edits at the same place do not add up to many pieces.
+ */
+public final class SplicedAbsoluteIntIndex implements SortedAbsoluteIntIndex {
+    
+    /** An empty index. */
+    public static final SplicedAbsoluteIntIndex EMPTY = new Builder().build();
+    
+    private final Node root;
+    
+    private SplicedAbsoluteIntIndex(Node root) {
+        this.root = root;
+    }
+    
+    /** @return  the number of pieces. */
+    public int pieceCount() {
+        return (root == null) ? 0 : root.pieceCount;
+    }
+    
+    @Override
+    public int length() {
+        return (root == null) ? 0 : root.length;
+    }
+    
+    @Override
+    public int get(int index) {
+        Objects.checkIndex(index, length());
+        return valueAt(root, index);
+    }
+    
+    @Override
+    public int indexOf(int needle) {
+        int absNeedle = abs(needle);
+        if ((root == null) || (root.last < absNeedle)) {
+            return length();
+        }
+        
+        // Each node on the way has its last value not less than the needle so the value found is in the last piece.
+        var node  = root;
+        int shift = 0;
+        int start = 0;
+        while (node.source == null) {
+            shift += node.shift;
+            if (node.left.last + shift >= absNeedle) {
+                node = node.left;
+            } else {
+                start += node.left.length;
+                node   = node.right;
+            }
+        }
+        shift += node.shift;
+        int found = node.source.indexOf(max(absNeedle - shift, 0));
+        return start + max(found, node.from) - node.from;
+    }
+    
+    @Override
+    public IntFuncList values() {
+        return IntFuncList.range(0, length()).map(this::get);
+    }
+    
+    @Override
+    public String toString() {
+        return values().toString();
+    }
+    
+    private static int shift(int value, int shift) {
+        return (value < 0) ? (value - shift) : (value + shift);
+    }
+    
+    private static int valueAt(Node node, int index) {
+        int shift = 0;
+        while (node.source == null) {
+            shift += node.shift;
+            if (index < node.left.length) {
+                node = node.left;
+            } else {
+                index -= node.left.length;
+                node   = node.right;
+            }
+        }
+        return shift(node.source.get(node.from + index), shift + node.shift);
+    }
+    
+    //== Tree ==
+    
+    /**
+     * A node of the tree of pieces -- either a piece (a range of a source) or the join of two nodes.
+     * 
+     * The shift of a node applies to all the values in its subtree on top of the shifts of the nodes below,
+     *   so a whole subtree is shifted by a single new node.
+     */
+    private static final class Node {
+        
+        private final SortedAbsoluteIntIndex source;
+        private final int                    from;
+        private final Node                   left;
+        private final Node                   right;
+        private final int                    shift;
+        private final int                    length;
+        private final int                    last;
+        private final int                    height;
+        private final int                    pieceCount;
+        
+        private Node(SortedAbsoluteIntIndex source, int from, int to, int shift) {
+            this.source     = source;
+            this.from       = from;
+            this.left       = null;
+            this.right      = null;
+            this.shift      = shift;
+            this.length     = to - from;
+            this.last       = abs(source.get(to - 1)) + shift;
+            this.height     = 0;
+            this.pieceCount = 1;
+        }
+        
+        private Node(Node left, Node right, int shift) {
+            this.source     = null;
+            this.from       = 0;
+            this.left       = left;
+            this.right      = right;
+            this.shift      = shift;
+            this.length     = left.length + right.length;
+            this.last       = right.last + shift;
+            this.height     = max(left.height, right.height) + 1;
+            this.pieceCount = left.pieceCount + right.pieceCount;
+        }
+        
+        private Node(Node left, Node right) {
+            this(left, right, 0);
+        }
+        
+        /** @return  this node with all its values shifted by the given amount. */
+        Node shifted(int shift) {
+            if (shift == 0) {
+                return this;
+            }
+            return (source != null)
+                    ? new Node(source, from, from + length, this.shift + shift)
+                    : new Node(left, right, this.shift + shift);
+        }
+        
+        /** @return  the left node with the shift of this node applied. */
+        Node left() {
+            return left.shifted(shift);
+        }
+        
+        /** @return  the right node with the shift of this node applied. */
+        Node right() {
+            return right.shifted(shift);
+        }
+        
+        /** @return  the number of values of the first piece. */
+        int firstPieceLength() {
+            var node = this;
+            while (node.source == null) {
+                node = node.left;
+            }
+            return node.length;
+        }
+        
+        /** @return  the number of values of the last piece. */
+        int lastPieceLength() {
+            var node = this;
+            while (node.source == null) {
+                node = node.right;
+            }
+            return node.length;
+        }
+    }
+    
+    // Returns the nodes of the given range sharing the nodes fully in the range.
+    private static Node slice(Node node, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        if ((start == 0) && (end == node.length)) {
+            return node;
+        }
+        if (node.source != null) {
+            return new Node(node.source, node.from + start, node.from + end, node.shift);
+        }
+        
+        var left       = node.left();
+        var right      = node.right();
+        int leftLength = left.length;
+        if (end <= leftLength) {
+            return slice(left, start, end);
+        }
+        if (start >= leftLength) {
+            return slice(right, start - leftLength, end - leftLength);
+        }
+        return concat(slice(left, start, leftLength), slice(right, 0, end - leftLength));
+    }
+    
+    // Concatenates the two nodes keeping the tree balanced.
+    private static Node concat(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.height > right.height + 1) {
+            return balance(left.left(), concat(left.right(), right));
+        }
+        if (right.height > left.height + 1) {
+            return balance(concat(left, right.left()), right.right());
+        }
+        return new Node(left, right);
+    }
+    
+    private static Node balance(Node left, Node right) {
+        if (left.height > right.height + 1) {
+            var leftLeft  = left.left();
+            var leftRight = left.right();
+            if (leftLeft.height >= leftRight.height) {
+                return new Node(leftLeft, new Node(leftRight, right));
+            }
+            return new Node(new Node(leftLeft, leftRight.left()), new Node(leftRight.right(), right));
+        }
+        if (right.height > left.height + 1) {
+            var rightLeft  = right.left();
+            var rightRight = right.right();
+            if (rightRight.height >= rightLeft.height) {
+                return new Node(new Node(left, rightLeft), rightRight);
+            }
+            return new Node(new Node(left, rightLeft.left()), new Node(rightLeft.right(), rightRight));
+        }
+        return new Node(left, right);
+    }
+    
+    /** A builder of a spliced index -- the pieces are added in order. */
+    public static final class Builder {
+        
+        private final int mergeLength;
+        
+        private Node root;
+        
+        /** Constructs a builder that never merges pieces. */
+        public Builder() {
+            this(0);
+        }
+        
+        /**
+         * Constructs a builder that merges neighbouring pieces when they are no longer than the given length together.
+         * 
+         * @param mergeLength  the maximum number of values of a merged piece.
+         */
+        public Builder(int mergeLength) {
+            this.mergeLength = mergeLength;
+        }
+        
+        /**
+         * Adds a range of the given index with the absolute values shifted.
+         * 
+         * A range of a spliced index shares its pieces -- it takes O(log pieces) no matter how many pieces it has.
+         * 
+         * @param source  the index.
+         * @param from    the first index (inclusive).
+         * @param to      the last index (exclusive).
+         * @param shift   the amount added to the absolute values.
+         * @return        this builder.
+         */
+        public Builder add(SortedAbsoluteIntIndex source, int from, int to, int shift) {
+            Objects.checkFromToIndex(from, to, source.length());
+            if (from == to) {
+                return this;
+            }
+            
+            int first    = shift(source.get(from), shift);
+            int previous = (root == null) ? 0 : root.last;
+            if (abs(first) < previous) {
+                var message = "The value %d at %d is less than the value before it.".formatted(first, length());
+                throw new IllegalArgumentException(message);
+            }
+            
+            var added
+                = (source instanceof SplicedAbsoluteIntIndex spliced)
+                ? slice(spliced.root, from, to).shifted(shift)
+                : new Node(source, from, to, shift);
+            if ((root != null) && (mergeLength > 0)) {
+                int lastLength  = root.lastPieceLength();
+                int firstLength = added.firstPieceLength();
+                if (lastLength + firstLength <= mergeLength) {
+                    // Replace the last piece and the first added piece with one of their values.
+                    var values = new int[lastLength + firstLength];
+                    for (int i = 0; i < lastLength; i++) {
+                        values[i] = valueAt(root, root.length - lastLength + i);
+                    }
+                    for (int i = 0; i < firstLength; i++) {
+                        values[lastLength + i] = valueAt(added, i);
+                    }
+                    var merged = new Node(EliasFanoIntArray.of(values, 0, values.length), 0, values.length, 0);
+                    root  = concat(slice(root, 0, root.length - lastLength), merged);
+                    added = slice(added, firstLength, added.length);
+                }
+            }
+            root = concat(root, added);
+            return this;
+        }
+        
+        /** @return  the number of pieces added so far. */
+        public int pieceCount() {
+            return (root == null) ? 0 : root.pieceCount;
+        }
+        
+        /** @return  the number of values added so far. */
+        public int length() {
+            return (root == null) ? 0 : root.length;
+        }
+        
+        /** @return  the spliced index of the pieces added. */
+        public SplicedAbsoluteIntIndex build() {
+            return new SplicedAbsoluteIntIndex(root);
+        }
+    }
+    
+}
@@ -0,0 +1,67 @@
+package net.nawaman.textj.text;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A compact {@link Str} which keeps its characters in Latin-1 -- one byte per character.
+ * 
+ * Use {@link Str#compact(CharSequence)} to create one -- it falls back to a UTF-16 {@link Str}
+ *   when any of the character does not fit in Latin-1.
+ **/
+public final class Latin1Str extends Str {
+    
+    /** The largest character that can be kept in a {@link Latin1Str}. */
+    public static final char MAX_CHAR = '\u00FF';
+    
+    private final byte[] bytes;
+    
+    /**
+     * Construct a new Latin1Str from the given Latin-1 (or ASCII) encoded bytes.
+     * 
+     * @param bytes   the bytes.
+     * @param offset  the offset of the first byte.
+     * @param length  the number of bytes (characters).
+     */
+    public Latin1Str(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        this.bytes = Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+    
+    // The bytes are owned by this object from now on.
+    Latin1Str(byte[] bytes) {
+        this.bytes = bytes;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        return (char)(bytes[index] & 0xFF);
+    }
+    
+    @Override
+    public int length() {
+        return bytes.length;
+    }
+    
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        checkGetChars(srcBegin, srcEnd, dst, dstBegin);
+        for (int i = srcBegin; i < srcEnd; i++) {
+            dst[dstBegin++] = (char)(bytes[i] & 0xFF);
+        }
+    }
+    
+    @Override
+    public String substring(int start, int end) {
+        Objects.checkFromToIndex(start, end, bytes.length);
+        return new String(bytes, start, end - start, ISO_8859_1);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(bytes, ISO_8859_1);
+    }
+    
+}
@@ -0,0 +1,366 @@
+package net.nawaman.textj.text;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link Str} backed by a memory-mapped file.
+ * 
+ * The file is decoded lazily in pages and only a bounded number of decoded pages are kept on the heap,
+ *   so the heap usage is proportional to the part of the file that is actually looked at.
+ * 
+ * For a single-byte charset (such as ISO-8859-1 or US-ASCII), the page of any character is known right away.
+ * For other charsets (such as UTF-8), the file is decoded once when mapped to record where each page starts;
+ *   only those page boundaries are kept.
+ * The charset must be stateless (for example, "UTF-16" with a byte-order mark is not supported -- use "UTF-16LE").
+ * 
+ * Malformed input and unmappable characters are replaced with the charset replacement.
+ * 
+ * The file stays mapped until this text is closed (or garbage collected if never closed).
+ * While it is mapped, the file may not be deleted or truncated on some platforms (such as Windows).
+ * {@link #close()} drops the mapped regions and the decoded pages -- the JDK has no way to unmap a region right away
+ *   so the mapping is released once the regions are garbage collected.
+ * Reading a closed text fails with an {@link IllegalStateException}.
+ **/
+public final class MappedStr extends Str implements Closeable {
+    
+    /** The default number of characters in a page. */
+    public static final int DEFAULT_PAGE_LENGTH = 64*1024;
+    
+    /** The default maximum number of decoded pages to be kept. */
+    public static final int DEFAULT_MAX_CACHED_PAGES = 64;
+    
+    // The size of each mapped region -- a MappedByteBuffer can only address up to 2GB.
+    static final int REGION_SIZE = 1 << 30;
+    
+    private final Path                 path;
+    private final Charset              charset;
+    private final int                  regionSize;
+    private final long                 byteLength;
+    private final int                  length;
+    private final int                  pageLength;
+    private final int                  maxBytesPerChar;
+    private final boolean              isSingleByte;
+    private final int[]                pageCharStarts;
+    private final long[]               pageByteStarts;
+    private final Map<Integer, char[]> pages;
+    
+    // The mapped regions -- null once closed.
+    private volatile MappedByteBuffer[] regions;
+    
+    // The last page hit -- most access are sequential so the next character is likely in the same page.
+    // It is not synchronized but the race is benign -- a Page is an immutable record so any page seen is a valid one.
+    private Page lastPage;
+    
+    /**
+     * Map the whole given file as text.
+     * 
+     * @param path     the path to the file.
+     * @param charset  the charset of the file.
+     * @return         the text of the file.
+     * @throws IOException  if the file cannot be read.
+     */
+    public static MappedStr map(Path path, Charset charset) throws IOException {
+        return map(path, charset, DEFAULT_PAGE_LENGTH, DEFAULT_MAX_CACHED_PAGES);
+    }
+    
+    /**
+     * Map the whole given file as text.
+     * 
+     * @param path            the path to the file.
+     * @param charset         the charset of the file.
+     * @param pageLength      the number of characters to be decoded at a time.
+     * @param maxCachedPages  the maximum number of decoded pages to be kept.
+     * @return                the text of the file.
+     * @throws IOException  if the file cannot be read.
+     */
+    public static MappedStr map(Path path, Charset charset, int pageLength, int maxCachedPages) throws IOException {
+        return new MappedStr(path, charset, pageLength, maxCachedPages, REGION_SIZE);
+    }
+    
+    MappedStr(Path path, Charset charset, int pageLength, int maxCachedPages, int regionSize) throws IOException {
+        this.path         = Objects.requireNonNull(path);
+        this.charset      = Objects.requireNonNull(charset);
+        this.pageLength   = Math.max(pageLength, 2);
+        this.regionSize   = regionSize;
+        
+        // A decode-only charset has no encoder to tell its width so assume the widest.
+        this.maxBytesPerChar = charset.canEncode() ? (int)Math.ceil(charset.newEncoder().maxBytesPerChar()) : 4;
+        this.isSingleByte    = (maxBytesPerChar == 1);
+        
+        try (var channel = FileChannel.open(path, READ)) {
+            this.byteLength = channel.size();
+            
+            int regionCount = (int)((byteLength + regionSize - 1) / regionSize);
+            var regions     = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                long position = (long)i*regionSize;
+                long size     = Math.min(regionSize, byteLength - position);
+                regions[i] = channel.map(READ_ONLY, position, size);
+            }
+            this.regions = regions;
+        }
+        
+        if (isSingleByte) {
+            if (byteLength > Integer.MAX_VALUE) {
+                var message = "The file is too large to be a text: path=%s, size=%d".formatted(path, byteLength);
+                throw new IllegalArgumentException(message);
+            }
+            this.length         = (int)byteLength;
+            this.pageCharStarts = null;
+            this.pageByteStarts = null;
+        } else {
+            var charStarts = new int [16];
+            var byteStarts = new long[16];
+            int pageCount  = 0;
+            
+            var  decoder   = newDecoder();
+            var  buffer    = CharBuffer.allocate(this.pageLength);
+            long charCount = 0;
+            long byteStart = 0;
+            while (byteStart < byteLength) {
+                if (pageCount == charStarts.length) {
+                    charStarts = Arrays.copyOf(charStarts, pageCount*2);
+                    byteStarts = Arrays.copyOf(byteStarts, pageCount*2);
+                }
+                charStarts[pageCount] = (int)charCount;
+                byteStarts[pageCount] = byteStart;
+                pageCount++;
+                
+                buffer.clear();
+                long byteEnd = decode(decoder, byteStart, byteLength, buffer);
+                charCount += buffer.position();
+                byteStart  = byteEnd;
+                if (charCount > Integer.MAX_VALUE) {
+                    var message = "The file is too large to be a text: path=%s, size=%d".formatted(path, byteLength);
+                    throw new IllegalArgumentException(message);
+                }
+            }
+            this.length         = (int)charCount;
+            this.pageCharStarts = Arrays.copyOf(charStarts, pageCount);
+            this.pageByteStarts = Arrays.copyOf(byteStarts, pageCount);
+        }
+        
+        int maxPages = Math.max(maxCachedPages, 1);
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, char[]> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+    
+    /** @return  the path of the mapped file. */
+    public Path path() {
+        return path;
+    }
+    
+    /** @return  the charset of the mapped file. */
+    public Charset charset() {
+        return charset;
+    }
+    
+    /** @return  <code>true</code> if this text is closed. */
+    public boolean isClosed() {
+        return regions == null;
+    }
+    
+    /**
+     * Closes this text -- drops the mapped regions and the decoded pages.
+     * 
+     * The mapping is released once the regions are garbage collected.
+     * Closing a closed text does nothing.
+     */
+    @Override
+    public void close() {
+        regions  = null;
+        lastPage = null;
+        synchronized (pages) {
+            pages.clear();
+        }
+    }
+    
+    /** @return  the number of decoded pages currently kept. */
+    int cachedPageCount() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+    
+    @Override
+    public char charAt(int index) {
+        if ((index < 0) || (index >= length)) {
+            var message = "'index' offset is out of bound: index=%d, length=%d".formatted(index, length);
+            throw new IndexOutOfBoundsException(message);
+        }
+        return pageOf(index).charAt(index);
+    }
+    
+    @Override
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        checkGetChars(srcBegin, srcEnd, dst, dstBegin);
+        while (srcBegin < srcEnd) {
+            var page    = pageOf(srcBegin);
+            int copyEnd = Math.min(srcEnd, page.end());
+            System.arraycopy(page.chars(), srcBegin - page.start(), dst, dstBegin, copyEnd - srcBegin);
+            dstBegin += copyEnd - srcBegin;
+            srcBegin  = copyEnd;
+        }
+    }
+    
+    @Override
+    public String substring(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        var chars = new char[end - start];
+        getChars(start, end, chars, 0);
+        return new String(chars);
+    }
+    
+    @Override
+    public String toString() {
+        return substring(0, length);
+    }
+    
+    //== Paging ==
+    
+    private Page pageOf(int index) {
+        var page = lastPage;
+        if ((page == null) || !page.contains(index)) {
+            int pageIndex
+                = isSingleByte
+                ? (index / pageLength)
+                : pageIndexOf(index);
+            page     = new Page(pageStart(pageIndex), loadPage(pageIndex));
+            lastPage = page;
+        }
+        return page;
+    }
+    
+    private int pageIndexOf(int index) {
+        int found = Arrays.binarySearch(pageCharStarts, index);
+        return (found >= 0) ? found : (-found - 2);
+    }
+    
+    private int pageStart(int pageIndex) {
+        return isSingleByte ? (pageIndex*pageLength) : pageCharStarts[pageIndex];
+    }
+    
+    private char[] loadPage(int pageIndex) {
+        synchronized (pages) {
+            var chars = pages.get(pageIndex);
+            if (chars != null) {
+                return chars;
+            }
+        }
+        
+        var chars = decodePage(pageIndex);
+        synchronized (pages) {
+            pages.put(pageIndex, chars);
+        }
+        return chars;
+    }
+    
+    private char[] decodePage(int pageIndex) {
+        long byteStart;
+        long byteEnd;
+        int  charCount;
+        if (isSingleByte) {
+            byteStart = (long)pageIndex*pageLength;
+            byteEnd   = Math.min(byteStart + pageLength, byteLength);
+            charCount = (int)(byteEnd - byteStart);
+        } else {
+            boolean isLast = (pageIndex == pageCharStarts.length - 1);
+            byteStart = pageByteStarts[pageIndex];
+            byteEnd   = isLast ? byteLength : pageByteStarts[pageIndex + 1];
+            charCount = (isLast ? length : pageCharStarts[pageIndex + 1]) - pageCharStarts[pageIndex];
+        }
+        
+        var buffer = CharBuffer.allocate(charCount);
+        decode(newDecoder(), byteStart, byteEnd, buffer);
+        return buffer.array();
+    }
+    
+    // Decodes from the byte start until the buffer is full or the byte end is reached -- returns the byte consumed up to.
+    private long decode(CharsetDecoder decoder, long byteStart, long byteEnd, CharBuffer buffer) {
+        var  bytes  = bytes(byteStart, Math.min(byteEnd, byteStart + (long)buffer.remaining()*maxBytesPerChar));
+        long limit  = byteStart + bytes.remaining();
+        var  isEnd  = (limit == byteLength);
+        var  result = decoder.reset().decode(bytes, buffer, isEnd);
+        if (isEnd && result.isUnderflow()) {
+            decoder.flush(buffer);
+        }
+        return byteStart + bytes.position();
+    }
+    
+    private ByteBuffer bytes(long byteStart, long byteEnd) {
+        var regions = this.regions;
+        if (regions == null) {
+            var message = "The mapped file is closed: path=%s".formatted(path);
+            throw new IllegalStateException(message);
+        }
+        
+        int region      = (int)(byteStart / regionSize);
+        int regionStart = (int)(byteStart % regionSize);
+        int size        = (int)(byteEnd - byteStart);
+        if (regionStart + size <= regionSize) {
+            return regions[region].slice(regionStart, size);
+        }
+        
+        // Straddle multiple regions.
+        var bytes  = new byte[size];
+        int copied = 0;
+        while (copied < size) {
+            int copySize = Math.min(regionSize - regionStart, size - copied);
+            regions[region].get(regionStart, bytes, copied, copySize);
+            copied     += copySize;
+            region     += 1;
+            regionStart = 0;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+    
+    private CharsetDecoder newDecoder() {
+        return charset
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    /** A decoded page and the range it covers. */
+    private static record Page(int start, char[] chars) {
+        
+        int end() {
+            return start + chars.length;
+        }
+        
+        boolean contains(int index) {
+            return (index >= start) && (index < end());
+        }
+        
+        char charAt(int index) {
+            return chars[index - start];
+        }
+    }
+    
+}
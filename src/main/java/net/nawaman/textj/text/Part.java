@@ -4,6 +4,7 @@ import static java.util.Collections.emptyList;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import functionalj.lens.core.LensSpec;
 import functionalj.lens.lenses.IntegerLens;
@@ -63,6 +64,18 @@ public sealed class Part extends Text permits PartWithExtra {
         return end - start;
     }
     
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        checkGetChars(srcBegin, srcEnd, dst, dstBegin);
+        full.getChars(start + srcBegin, start + srcEnd, dst, dstBegin);
+    }
+    
+    @Override
+    public String substring(int start, int end) {
+        Objects.checkFromToIndex(start, end, length());
+        return full.substring(this.start + start, this.start + end);
+    }
+    
     @Override
     public Part subSequence(int start, int end) {
         return new Part(full, this.start + start, this.start + end);
@@ -70,7 +83,17 @@ public sealed class Part extends Text permits PartWithExtra {
     
     @Override
     public String toString() {
-        return full.toString().substring(start, end);
+        return full.substring(start, end);
+    }
+    
+    @Override
+    long computeContentHash() {
+        return full.contentHash(start, end);
+    }
+    
+    @Override
+    long computeContentHash(int start, int end) {
+        return full.contentHash(this.start + start, this.start + end);
     }
     
     //== Extra ==
@@ -0,0 +1,301 @@
+package net.nawaman.textj.text;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.List;
+
+import net.nawaman.textj.internal.PolynomialHash;
+
+/**
+ * An immutable height-balanced (AVL) concatenation tree of leaf texts.
+ * 
+ * Each node carries the length of its subtree so that a character can be located in O(log n)
+ *   regardless of how the texts were concatenated.
+ * Two ropes can be concatenated in O(log n) by joining the shorter tree into the spine of the taller one.
+ * 
+ * Leaves are never {@link Sequence} -- nested sequences are flattened into their own rope.
+ * Neither are they parts of a sequence -- those are sliced from the rope of the sequence sharing its nodes,
+ *   so a text edited many times (a part before, the new text and a part after) stays as shallow as one rope.
+ */
+final class Rope {
+    
+    private final Text leaf;
+    private final Rope left;
+    private final Rope right;
+    private final int  length;
+    private final int  height;
+    
+    private volatile boolean isContentHashed;
+    private          long    contentHash;
+    
+    private Rope(Text leaf) {
+        this.leaf   = leaf;
+        this.left   = null;
+        this.right  = null;
+        this.length = leaf.length();
+        this.height = 0;
+    }
+    
+    private Rope(Rope left, Rope right) {
+        this.leaf   = null;
+        this.left   = left;
+        this.right  = right;
+        this.length = left.length + right.length;
+        this.height = max(left.height, right.height) + 1;
+    }
+    
+    /**
+     * Returns the rope of the given text.
+     * 
+     * @param text  the text.
+     * @return      the rope or <code>null</code> if the text is null or empty.
+     */
+    static Rope of(Text text) {
+        if ((text == null) || (text.length() == 0)) {
+            return null;
+        }
+        if (text instanceof Sequence sequence) {
+            return sequence.rope();
+        }
+        if (isPartOfSequence(text)) {
+            var part = (Part)text;
+            return ((Sequence)part.full()).rope().slice(part.start(), part.end());
+        }
+        return new Rope(text);
+    }
+    
+    /** @return  <code>true</code> if the text is a part of a sequence -- which is sliced from the sequence rope. */
+    static boolean isPartOfSequence(Text text) {
+        return (text instanceof Part part) && (part.full() instanceof Sequence);
+    }
+    
+    /**
+     * Returns a balanced rope of the given texts.
+     * 
+     * @param texts  the texts.
+     * @param from   the first index (inclusive).
+     * @param to     the last index (exclusive).
+     * @return       the rope or <code>null</code> if there is no non-empty text.
+     */
+    static Rope of(Text[] texts, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        if (from + 1 == to) {
+            return of(texts[from]);
+        }
+        
+        int mid = (from + to) >>> 1;
+        return concat(of(texts, from, mid), of(texts, mid, to));
+    }
+    
+    /**
+     * Concatenates the two ropes keeping the result balanced.
+     * 
+     * @param left   the left rope (may be <code>null</code>).
+     * @param right  the right rope (may be <code>null</code>).
+     * @return       the concatenated rope.
+     */
+    static Rope concat(Rope left, Rope right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.height > right.height + 1) {
+            return balance(left.left, concat(left.right, right));
+        }
+        if (right.height > left.height + 1) {
+            return balance(concat(left, right.left), right.right);
+        }
+        return new Rope(left, right);
+    }
+    
+    private static Rope balance(Rope left, Rope right) {
+        if (left.height > right.height + 1) {
+            if (left.left.height >= left.right.height) {
+                return new Rope(left.left, new Rope(left.right, right));
+            }
+            var middle = left.right;
+            return new Rope(new Rope(left.left, middle.left), new Rope(middle.right, right));
+        }
+        if (right.height > left.height + 1) {
+            if (right.right.height >= right.left.height) {
+                return new Rope(new Rope(left, right.left), right.right);
+            }
+            var middle = right.left;
+            return new Rope(new Rope(left, middle.left), new Rope(middle.right, right.right));
+        }
+        return new Rope(left, right);
+    }
+    
+    /**
+     * Returns the rope of the given range sharing the nodes fully in the range.
+     * 
+     * Only the leaves at the two ends are replaced with their parts
+     *   so the slicing takes O(log n) nodes and joins.
+     * 
+     * @param start  the start index (inclusive).
+     * @param end    the end index (exclusive).
+     * @return       the rope or <code>null</code> if the range is empty.
+     */
+    Rope slice(int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        if ((start == 0) && (end == length)) {
+            return this;
+        }
+        if (leaf != null) {
+            var part = (leaf instanceof Part leafPart) ? leafPart.subSequence(start, end) : new Part(leaf, start, end);
+            return new Rope(part);
+        }
+        
+        int leftLength = left.length;
+        if (end <= leftLength) {
+            return left.slice(start, end);
+        }
+        if (start >= leftLength) {
+            return right.slice(start - leftLength, end - leftLength);
+        }
+        return concat(left.slice(start, leftLength), right.slice(0, end - leftLength));
+    }
+    
+    /** @return  the length of the text in this rope. */
+    int length() {
+        return length;
+    }
+    
+    /** @return  the height of this rope -- 0 for a leaf. */
+    int height() {
+        return height;
+    }
+    
+    /**
+     * Adds the leaves of this rope (in order) to the given list.
+     * 
+     * @param leaves  the list.
+     */
+    void addLeavesTo(List<Text> leaves) {
+        if (leaf != null) {
+            leaves.add(leaf);
+            return;
+        }
+        left .addLeavesTo(leaves);
+        right.addLeavesTo(leaves);
+    }
+    
+    /**
+     * Returns the finger to the leaf containing the given index.
+     * 
+     * The index is assumed to be already checked.
+     * 
+     * @param index  the index.
+     * @return       the finger to the leaf.
+     */
+    Finger fingerAt(int index) {
+        var node  = this;
+        int start = 0;
+        while (node.leaf == null) {
+            int leftLength = node.left.length;
+            if (index < start + leftLength) {
+                node = node.left;
+            } else {
+                start += leftLength;
+                node   = node.right;
+            }
+        }
+        return new Finger(node.leaf, start, start + node.length);
+    }
+    
+    /**
+     * Copies the characters in the given range to the destination array.
+     * 
+     * The range is assumed to be already checked.
+     * The recursion is bounded by the height of the rope and never by how deep the sequences were nested.
+     * 
+     * @param srcBegin  the index of the first character to copy.
+     * @param srcEnd    the index after the last character to copy.
+     * @param dst       the destination array.
+     * @param dstBegin  the start offset in the destination array.
+     */
+    void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        if (leaf != null) {
+            leaf.getChars(srcBegin, srcEnd, dst, dstBegin);
+            return;
+        }
+        
+        int leftLength = left.length;
+        if (srcBegin < leftLength) {
+            int leftEnd = min(srcEnd, leftLength);
+            left.getChars(srcBegin, leftEnd, dst, dstBegin);
+            dstBegin += leftEnd - srcBegin;
+            srcBegin  = leftEnd;
+        }
+        if (srcEnd > leftLength) {
+            right.getChars(srcBegin - leftLength, srcEnd - leftLength, dst, dstBegin);
+        }
+    }
+    
+    /**
+     * Returns the content hash of the given range.
+     * 
+     * The hash of each node is cached so ropes sharing nodes only hash the nodes they do not share.
+     * 
+     * @param start  the start index (inclusive).
+     * @param end    the end index (exclusive).
+     * @return       the content hash of the range.
+     */
+    long contentHash(int start, int end) {
+        if ((start == 0) && (end == length)) {
+            return contentHash();
+        }
+        if (leaf != null) {
+            return leaf.contentHash(start, end);
+        }
+        
+        int leftLength = left.length;
+        if (end <= leftLength) {
+            return left.contentHash(start, end);
+        }
+        if (start >= leftLength) {
+            return right.contentHash(start - leftLength, end - leftLength);
+        }
+        
+        long leftHash  = left.contentHash(start, leftLength);
+        long rightHash = right.contentHash(0, end - leftLength);
+        return PolynomialHash.concat(leftHash, rightHash, end - leftLength);
+    }
+    
+    private long contentHash() {
+        if (!isContentHashed) {
+            contentHash
+                = (leaf != null)
+                ? leaf.contentHash()
+                : PolynomialHash.concat(left.contentHash(), right.contentHash(), right.length);
+            isContentHashed = true;
+        }
+        return contentHash;
+    }
+    
+    /**
+     * A pointer to a leaf text and the range it covers in the whole text.
+     * 
+     * The finger is immutable so it can be cached and shared between threads without synchronization.
+     */
+    static record Finger(Text leaf, int start, int end) {
+        
+        /** @return  <code>true</code> if the given index is in this leaf. */
+        boolean contains(int index) {
+            return (index >= start) && (index < end);
+        }
+        
+        /** @return  the character at the given (whole text) index. */
+        char charAt(int index) {
+            return leaf.charAt(index - start);
+        }
+    }
+    
+}
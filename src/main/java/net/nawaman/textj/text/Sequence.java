@@ -3,7 +3,9 @@ package net.nawaman.textj.text;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -15,16 +17,35 @@ import functionalj.map.FuncMap;
 import functionalj.types.Generic;
 import functionalj.types.Type;
 import functionalj.types.choice.generator.model.CaseParam;
+import net.nawaman.textj.internal.PolynomialHash;
 import net.nawaman.textj.internal.SortedAbsoluteIntArray;
 
 /**
  * A {@link Text} that are build from a sequence of {@link Text}.
+ * 
+ * When any of the texts in the sequence is itself a sequence, the leaves are organized into a balanced {@link Rope}
+ *   so that the access and further concatenation stay O(log n) no matter how deep the sequences are nested.
+ * The same goes for a part of a sequence -- so splicing a text into a sequence keeps it as shallow.
+ * 
+ * A sequence made by {@link Text#concat(Text...)} keeps only the rope of the leaves and not the texts given,
+ *   so a new version of a text made from an old one does not keep the old one reachable.
  **/
 public sealed class Sequence extends Text permits SequenceWithExtra {
     
-    private final FuncList<Text>         sequence;
+    // Both are null for a sequence made from a rope -- which only has the rope.
+    private final Text[]                 texts;
     private final SortedAbsoluteIntArray endOffsets;
     
+    private final int     length;
+    private final boolean isNested;
+    
+    // Immutable once built so racing to build it is harmless.
+    private Rope           rope;
+    private FuncList<Text> sequence;
+    
+    // The last leaf hit -- most access are sequential so the next character is likely in the same leaf.
+    private Rope.Finger finger;
+    
     /** Construct a new Sequence. **/
     public Sequence(Text ... sequence) {
         this((sequence == null) ? FuncList.empty() : FuncList.of(sequence));
@@ -32,18 +53,52 @@ public sealed class Sequence extends Text permits SequenceWithExtra {
     
     /** Construct a new Sequence. **/
     public Sequence(FuncList<Text> sequence) {
-        this.sequence
+        this.texts
             = (sequence == null)
-            ? FuncList.empty()
+            ? new Text[0]
             : sequence
                 .filterNonNull()
-                .filter(s -> s.length() > 0);
+                .filter(s -> s.length() > 0)
+                .toArray(new Text[0]);
+        this.sequence = FuncList.of(texts);
         
+        boolean isNested   = false;
+        int     endOffset  = 0;
+        var     endOffsets = new int[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            endOffset    += texts[i].length();
+            endOffsets[i] = endOffset;
+            isNested     |= (texts[i] instanceof Sequence) || Rope.isPartOfSequence(texts[i]);
+        }
         this.endOffsets = new SortedAbsoluteIntArray();
-        this.sequence
-        .map(s -> s.length())
-        .accumulate((prev, current) -> prev + current)
-        .forEach(endOffsets::add);
+        this.endOffsets.addAll(endOffsets, 0, endOffsets.length);
+        
+        this.length   = endOffset;
+        this.isNested = isNested;
+        this.rope     = isNested ? Rope.of(texts, 0, texts.length) : null;
+    }
+    
+    /**
+     * Construct a sequence of the leaves of the given rope.
+     * 
+     * @param rope  the rope (may be <code>null</code> for an empty sequence).
+     */
+    Sequence(Rope rope) {
+        this.texts      = null;
+        this.endOffsets = null;
+        this.length     = (rope == null) ? 0 : rope.length();
+        this.isNested   = true;
+        this.rope       = rope;
+    }
+    
+    /** @return  the balanced rope of the leaves of this sequence -- built on demand for a flat sequence. */
+    final Rope rope() {
+        var rope = this.rope;
+        if ((rope == null) && (length != 0)) {
+            rope = Rope.of(texts, 0, texts.length);
+            this.rope = rope;
+        }
+        return rope;
     }
     
     @Override
@@ -57,20 +112,59 @@ public sealed class Sequence extends Text permits SequenceWithExtra {
             throw new IndexOutOfBoundsException(message);
         }
         
+        var finger = this.finger;
+        if ((finger == null) || !finger.contains(index)) {
+            finger      = fingerAt(index);
+            this.finger = finger;
+        }
+        return finger.charAt(index);
+    }
+    
+    private Rope.Finger fingerAt(int index) {
+        if (isNested) {
+            return rope.fingerAt(index);
+        }
+        
         int subsequenceIndex = endOffsets.indexOf(index + 1);
-        int offsetInSubsequence
+        int startOffset
             = (subsequenceIndex == 0)
-            ? index
-            : index - endOffsets.get(subsequenceIndex - 1);
+            ? 0
+            : endOffsets.get(subsequenceIndex - 1);
+        int endOffset = endOffsets.get(subsequenceIndex);
         
-        var sequenceItem = sequence.get(subsequenceIndex);
-        var charAt       = sequenceItem.charAt(offsetInSubsequence);
-        return charAt;
+        var sequenceItem = texts[subsequenceIndex];
+        return new Rope.Finger(sequenceItem, startOffset, endOffset);
     }
     
     @Override
     public int length() {
-        return endOffsets.isEmpty() ? 0 : endOffsets.get(endOffsets.length() - 1);
+        return length;
+    }
+    
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        checkGetChars(srcBegin, srcEnd, dst, dstBegin);
+        if (srcBegin == srcEnd) {
+            return;
+        }
+        if (isNested) {
+            rope.getChars(srcBegin, srcEnd, dst, dstBegin);
+            return;
+        }
+        
+        int index       = endOffsets.indexOf(srcBegin + 1);
+        int startOffset = (index == 0) ? 0 : endOffsets.get(index - 1);
+        while (srcBegin < srcEnd) {
+            var text      = texts[index];
+            int endOffset = startOffset + text.length();
+            int copyEnd   = Math.min(srcEnd, endOffset);
+            text.getChars(srcBegin - startOffset, copyEnd - startOffset, dst, dstBegin);
+            
+            dstBegin   += copyEnd - srcBegin;
+            srcBegin    = copyEnd;
+            startOffset = endOffset;
+            index++;
+        }
     }
     
     @Override
@@ -80,14 +174,48 @@ public sealed class Sequence extends Text permits SequenceWithExtra {
     
     @Override
     public String toString() {
-        return sequence.map(Text::toString).join();
+        int length = length();
+        var chars  = new char[length];
+        getChars(0, length, chars, 0);
+        return new String(chars);
+    }
+    
+    @Override
+    long computeContentHash() {
+        return computeContentHash(0, length());
+    }
+    
+    @Override
+    long computeContentHash(int start, int end) {
+        if (start == end) {
+            return PolynomialHash.EMPTY;
+        }
+        if (isNested) {
+            return rope.contentHash(start, end);
+        }
+        
+        long hash        = PolynomialHash.EMPTY;
+        int  index       = endOffsets.indexOf(start + 1);
+        int  startOffset = (index == 0) ? 0 : endOffsets.get(index - 1);
+        while (start < end) {
+            var text      = texts[index];
+            int endOffset = startOffset + text.length();
+            int hashEnd   = Math.min(end, endOffset);
+            long textHash = text.contentHash(start - startOffset, hashEnd - startOffset);
+            hash = PolynomialHash.concat(hash, textHash, hashEnd - start);
+            
+            start       = hashEnd;
+            startOffset = endOffset;
+            index++;
+        }
+        return hash;
     }
     
     //== Extra ==
     
     /** Returns the extra data of this {@link Sequence}. **/
     public <E> SequenceWithExtra<E> withExtra(E extra) {
-        return new SequenceWithExtra<E>(sequence, extra);
+        return new SequenceWithExtra<E>(sequence(), extra);
     }
     
     //== Functional Choice ==
@@ -97,8 +225,17 @@ public sealed class Sequence extends Text permits SequenceWithExtra {
     /** Returns the lens for {@code Sequence} **/
     public static final Sequence.SequenceLens<Sequence> eachSequence = theSequence;
     
-    /** Returns the sequence content of this {@link Sequence} **/
+    /** Returns the sequence content of this {@link Sequence} -- the leaves for a sequence made from a rope. **/
     public FuncList<Text> sequence() {
+        var sequence = this.sequence;
+        if (sequence == null) {
+            var leaves = new ArrayList<Text>();
+            if (rope != null) {
+                rope.addLeavesTo(leaves);
+            }
+            sequence      = FuncList.of(leaves.toArray(new Text[0]));
+            this.sequence = sequence;
+        }
         return sequence;
     }
     /** Returns a new {@link Sequence} with the given sequence content. **/
@@ -125,7 +262,7 @@ public sealed class Sequence extends Text permits SequenceWithExtra {
     public Map<String, Object> __toMap() {
         var map = new HashMap<String, Object>();
         map.put("__tagged", $utils.toMapValueObject("Sequence"));
-        map.put("sequence", this.sequence);
+        map.put("sequence", sequence());
         return map;
     }
     
@@ -154,8 +291,17 @@ public sealed class Sequence extends Text permits SequenceWithExtra {
     /** Constructs a new {@link Sequence} from the given map. */
     @SuppressWarnings("unchecked")
     public static Sequence caseFromMap(Map<String, ? extends Object> map) {
+        // The generic extraction cannot convert a list so the texts (or their maps) are read as they are.
+        if (map.get("sequence") instanceof List<?> texts) {
+            return Sequence(FuncList.from(texts).map(Sequence::textFromMapValue));
+        }
         return Sequence((FuncList<Text>)$utils.extractPropertyFromMap(Sequence.class, FuncList.class, map, __schema__, "sequence")
         );
     }
     
+    @SuppressWarnings("unchecked")
+    private static Text textFromMapValue(Object value) {
+        return (value instanceof Map<?, ?> map) ? Text.fromMap((Map<String, Object>)map) : (Text)value;
+    }
+    
 }
@@ -9,11 +9,16 @@ import functionalj.lens.lenses.StringLens;
 import functionalj.map.FuncMap;
 import functionalj.types.Type;
 import functionalj.types.choice.generator.model.CaseParam;
+import net.nawaman.textj.internal.PolynomialHash;
 
 /**
  * A string text.
+ * 
+ * A {@link Str} is normally backed by a {@link String}.
+ * A compact leaf (such as {@link Latin1Str}) keeps its characters in its own form
+ *   and only creates the string when {@link #string()} is asked.
  **/
-public sealed class Str extends Text permits StrWithExtra {
+public sealed class Str extends Text permits StrWithExtra, Latin1Str, MappedStr {
     
     public static final Str.StrLens<Str> theStr = new Str.StrLens<>("theStr", LensSpec.of(Str.class));
     public static final Str.StrLens<Str> eachStr = theStr;
@@ -29,6 +34,40 @@ public sealed class Str extends Text permits StrWithExtra {
         this.string = (string == null) ? "" : string;
     }
     
+    /** Construct a compact Str -- the subclass must override all the character access methods. **/
+    Str() {
+        this.string = null;
+    }
+    
+    /**
+     * Returns a {@link Str} of the given text using the most compact representation.
+     * 
+     * If all the characters fit in Latin-1, the text is kept in one byte per character ({@link Latin1Str}).
+     * Otherwise, it is widened to a UTF-16 {@link Str}.
+     * 
+     * @param text  the text.
+     * @return      the compact {@link Str}.
+     */
+    public static Str compact(CharSequence text) {
+        if (text == null) {
+            return empty;
+        }
+        if (text instanceof Latin1Str latin1) {
+            return latin1;
+        }
+        
+        int length = text.length();
+        var bytes  = new byte[length];
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch > Latin1Str.MAX_CHAR) {
+                return new Str(text.toString());
+            }
+            bytes[i] = (byte)ch;
+        }
+        return new Latin1Str(bytes);
+    }
+    
     @Override
     public char charAt(int index) {
         return string.charAt(index);
@@ -39,6 +78,16 @@ public sealed class Str extends Text permits StrWithExtra {
         return string.length();
     }
     
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        string.getChars(srcBegin, srcEnd, dst, dstBegin);
+    }
+    
+    @Override
+    public String substring(int start, int end) {
+        return string.substring(start, end);
+    }
+    
     @Override
     public Text subSequence(int start, int end) {
         return new Part(this, start, end);
@@ -49,17 +98,73 @@ public sealed class Str extends Text permits StrWithExtra {
         return string;
     }
     
+    //== Content hash ==
+    
+    /** The number of characters between two sampled prefix hashes. */
+    static final int PREFIX_HASH_BLOCK_LENGTH = 64;
+    
+    // prefixHashes[k] is the hash of the first k*PREFIX_HASH_BLOCK_LENGTH characters -- only built when sliced.
+    private volatile long[] prefixHashes;
+    
+    @Override
+    long computeContentHash() {
+        return hashOf(PolynomialHash.EMPTY, 0, length());
+    }
+    
+    @Override
+    long computeContentHash(int start, int end) {
+        if ((end - start) <= 2*PREFIX_HASH_BLOCK_LENGTH) {
+            return hashOf(PolynomialHash.EMPTY, start, end);
+        }
+        
+        long endHash   = prefixHash(end);
+        long startHash = prefixHash(start);
+        return PolynomialHash.suffix(endHash, startHash, end - start);
+    }
+    
+    private long prefixHash(int offset) {
+        var prefixHashes = prefixHashes();
+        int block        = offset / PREFIX_HASH_BLOCK_LENGTH;
+        return hashOf(prefixHashes[block], block*PREFIX_HASH_BLOCK_LENGTH, offset);
+    }
+    
+    private long[] prefixHashes() {
+        var prefixHashes = this.prefixHashes;
+        if (prefixHashes == null) {
+            int length = length();
+            prefixHashes = new long[length/PREFIX_HASH_BLOCK_LENGTH + 1];
+            for (int block = 1; block < prefixHashes.length; block++) {
+                int blockEnd = block*PREFIX_HASH_BLOCK_LENGTH;
+                prefixHashes[block] = hashOf(prefixHashes[block - 1], blockEnd - PREFIX_HASH_BLOCK_LENGTH, blockEnd);
+            }
+            this.prefixHashes = prefixHashes;
+        }
+        return prefixHashes;
+    }
+    
+    private long hashOf(long hash, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hash = PolynomialHash.append(hash, charAt(i));
+        }
+        return hash;
+    }
+    
     //== Extra ==
     
     /** Returns the extra data of this {@link Str}. **/
     public <E> StrWithExtra<E> withExtra(E extra) {
-        return new StrWithExtra<E>(string, extra);
+        return new StrWithExtra<E>(string(), extra);
     }
     
     //== Functional Choice ==
     
     /** Returns the string content of this {@link Str} **/
     public final String string() {
+        return (string != null) ? string : toString();
+    }
+    
+    /** Returns the backing string or <code>null</code> if this {@link Str} is not backed by a string. **/
+    final String backingString() {
         return string;
     }
     
@@ -82,7 +187,7 @@ public sealed class Str extends Text permits StrWithExtra {
     public Map<String, Object> __toMap() {
         var map = new java.util.HashMap<String, Object>();
         map.put("__tagged", $utils.toMapValueObject("Str"));
-        map.put("string", this.string);
+        map.put("string", string());
         return map;
     }
     
@@ -1,6 +1,8 @@
 package net.nawaman.textj.text;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -22,12 +24,13 @@ import functionalj.result.Result;
 import functionalj.types.choice.ChoiceTypeSwitch;
 import functionalj.types.choice.IChoice;
 import functionalj.types.choice.generator.model.CaseParam;
+import net.nawaman.textj.internal.PolynomialHash;
 
 /**
  * Represents a text.
  **/
 public abstract sealed class Text 
-        implements CharSequence, IChoice<Text.TextFirstSwitch>, Pipeable<Text> 
+        implements CharSequence, Comparable<Text>, IChoice<Text.TextFirstSwitch>, Pipeable<Text> 
         permits Str, Part, Sequence {
     
     /** Create a {@link Str} instance. */
@@ -45,8 +48,63 @@ public abstract sealed class Text
         return new Sequence(sequence);
     }
     
+    /**
+     * Concatenates the given texts into a {@link Sequence} that keeps only their leaves.
+     * 
+     * Unlike {@link #Sequence(FuncList)}, the given texts are not kept:
+     *   a sequence (or a part of one) shares the nodes of its rope and is not reachable from the result.
+     * So a new version of a text made from its old one (say, a part before an edit, the inserted text and a part after)
+     *   does not keep the old version (nor the one before it) alive.
+     * 
+     * @param texts  the texts.
+     * @return       the concatenated sequence.
+     */
+    public static final Sequence concat(Text ... texts) {
+        return new Sequence((texts == null) ? null : Rope.of(texts, 0, texts.length));
+    }
+    
     Text() {}
     
+    //== Bulk access ==
+    
+    /**
+     * Copies the characters of this text into the destination character array.
+     * 
+     * @param srcBegin  the index of the first character to copy.
+     * @param srcEnd    the index after the last character to copy.
+     * @param dst       the destination array.
+     * @param dstBegin  the start offset in the destination array.
+     * 
+     * @throws IndexOutOfBoundsException  if the source range is not within this text
+     *                                      or the destination array is too small.
+     */
+    public abstract void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin);
+    
+    /**
+     * Returns the string of the characters in the given range.
+     * 
+     * Only the characters in the range are copied so the cost is proportional to the length of the range
+     *   and not to the length of this text.
+     * 
+     * @param start  the start index (inclusive).
+     * @param end    the end index (exclusive).
+     * @return       the string of the characters in the range.
+     * 
+     * @throws IndexOutOfBoundsException  if the range is not within this text.
+     */
+    public String substring(int start, int end) {
+        Objects.checkFromToIndex(start, end, length());
+        var chars = new char[end - start];
+        getChars(start, end, chars, 0);
+        return new String(chars);
+    }
+    
+    /** Ensures that the given range is valid for this text and that the destination can hold it. */
+    final void checkGetChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        Objects.checkFromToIndex(srcBegin, srcEnd, length());
+        Objects.checkFromIndexSize(dstBegin, srcEnd - srcBegin, dst.length);
+    }
+    
     
     //== Functional Choice ==
     // Due to the limitation of creating lens for FuncList of Self,
@@ -189,9 +247,11 @@ public abstract sealed class Text
     @Override
     public abstract String toString();
     
+    /** Returns the hash code of the content of this text -- derived from {@link #contentHash()}. */
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        long hash = contentHash();
+        return (int)(hash ^ (hash >>> 32));
     }
     
     @Override
@@ -202,9 +262,111 @@ public abstract sealed class Text
         if (this == obj)
             return true;
         
-        String objToString  = obj.toString();
-        String thisToString = this.toString();
-        return thisToString.equals(objToString);
+        var text = (Text)obj;
+        if (length() != text.length())
+            return false;
+        
+        if (isContentHashed && text.isContentHashed && (contentHash != text.contentHash))
+            return false;
+        
+        if (isSameRange(this, text))
+            return true;
+        
+        return compare(this, text) == 0;
+    }
+    
+    /**
+     * Compares the content of this text to the content of the given text lexicographically.
+     * 
+     * The result is the same as comparing the two {@link String} with the same contents
+     *   but it is computed by streaming the characters without creating those strings.
+     */
+    @Override
+    public int compareTo(Text text) {
+        if (this == text)
+            return 0;
+        
+        if (isSameRange(this, text))
+            return 0;
+        
+        return compare(this, text);
+    }
+    
+    //== Content hash ==
+    
+    private volatile boolean isContentHashed;
+    private          long    contentHash;
+    
+    /**
+     * Returns the 64-bit polynomial hash of the content of this text (see {@link PolynomialHash}).
+     * 
+     * The hash only depends on the characters so texts with the same content have the same hash
+     *   no matter how they are structured.
+     * The hash is computed once and cached.
+     * The hash of a sequence is combined from the hash of its children
+     *   so sequences sharing structure only hash what they do not share.
+     * 
+     * @return  the content hash.
+     */
+    public final long contentHash() {
+        if (!isContentHashed) {
+            contentHash     = computeContentHash();
+            isContentHashed = true;
+        }
+        return contentHash;
+    }
+    
+    /** Computes the content hash of the whole text. */
+    abstract long computeContentHash();
+    
+    /** Computes the content hash of the given range -- the range is assumed to be checked and not the whole text. */
+    abstract long computeContentHash(int start, int end);
+    
+    /** Returns the content hash of the given range using the cached hash when the range is the whole text. */
+    final long contentHash(int start, int end) {
+        if (start == end)
+            return PolynomialHash.EMPTY;
+        
+        if ((start == 0) && (end == length()))
+            return contentHash();
+        
+        return computeContentHash(start, end);
+    }
+    
+    /** The number of characters to be copied at a time when streaming through the content of texts. */
+    static final int COMPARE_CHUNK_LENGTH = 512;
+    
+    private static boolean isSameRange(Text first, Text second) {
+        return (first  instanceof Part firstPart)
+            && (second instanceof Part secondPart)
+            && (firstPart.full()  == secondPart.full())
+            && (firstPart.start() == secondPart.start())
+            && (firstPart.end()   == secondPart.end());
+    }
+    
+    private static int compare(Text first, Text second) {
+        if ((first instanceof Str firstStr) && (second instanceof Str secondStr)
+         && (firstStr.backingString() != null) && (secondStr.backingString() != null)) {
+            return firstStr.backingString().compareTo(secondStr.backingString());
+        }
+        
+        int firstLength  = first.length();
+        int secondLength = second.length();
+        int minLength    = Math.min(firstLength, secondLength);
+        int chunkLength  = Math.min(minLength, COMPARE_CHUNK_LENGTH);
+        var firstBuffer  = new char[chunkLength];
+        var secondBuffer = new char[chunkLength];
+        for (int offset = 0; offset < minLength; offset += chunkLength) {
+            int end = Math.min(offset + chunkLength, minLength);
+            first .getChars(offset, end, firstBuffer,  0);
+            second.getChars(offset, end, secondBuffer, 0);
+            
+            int mismatch = Arrays.mismatch(firstBuffer, 0, end - offset, secondBuffer, 0, end - offset);
+            if (mismatch != -1) {
+                return firstBuffer[mismatch] - secondBuffer[mismatch];
+            }
+        }
+        return firstLength - secondLength;
     }
     
     //== Extra ==
@@ -4,16 +4,40 @@ import static functionalj.lens.Access.theString;
 import static functionalj.list.FuncList.listOf;
 import static functionalj.list.intlist.IntFuncList.range;
 import static functionalj.stream.intstream.IntStreamPlus.infinite;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import functionalj.list.intlist.IntFuncList;
+import functionalj.ref.Run;
 import net.nawaman.textj.code.formatter.SegmentPlainTextFormatter;
+import net.nawaman.textj.text.MappedStr;
+import net.nawaman.textj.text.Part;
+import net.nawaman.textj.text.Sequence;
+import net.nawaman.textj.text.Str;
+import net.nawaman.textj.text.Text;
 
 class CodeTest {
     
@@ -1234,4 +1258,617 @@ class CodeTest {
                 .toString());
     }
     
+    //== Construction ==
+    
+    @Test
+    void testOf_text() {
+        var content = new Sequence(new Str("first\nsec"), new Str("ond\r\nthird"));
+        var code    = Code.of(content);
+        assertSame(content, code.content());
+        assertEquals(3,                        code.lineCount());
+        assertEquals("[first, second, third]", code.lines().toString());
+    }
+    
+    @Test
+    void testOf_charSequence() {
+        var builder = new StringBuilder("first\nsecond");
+        var code    = Code.of(builder);
+        builder.append("\nthird");
+        assertEquals("[first, second]", code.lines().toString());
+        assertEquals("",                Code.of((CharSequence)null).content().toString());
+    }
+    
+    @Test
+    void testFrom_reader() throws IOException {
+        var content = "Line\n".repeat(Code.READ_CHUNK_LENGTH / 4);
+        var code    = Code.from(new StringReader(content));
+        assertEquals(content,                        code.content().toString());
+        assertEquals(Code.READ_CHUNK_LENGTH / 4 + 1, code.lineCount());
+        assertEquals("Line",                         code.line(Code.READ_CHUNK_LENGTH / 5));
+        
+        assertEquals("",   Code.from(new StringReader("")).content().toString());
+        assertEquals(1,    Code.from(new StringReader("")).lineCount());
+    }
+    
+    @Test
+    void testFrom_path(@TempDir Path directory) throws IOException {
+        var path = directory.resolve("code.txt");
+        Files.writeString(path, "first\nsecond: café\r\nthird", UTF_8);
+        
+        var code = Code.from(path, UTF_8);
+        assertEquals(3,              code.lineCount());
+        assertEquals("second: café", code.line(1));
+        assertEquals(1,              code.lineNumberAtOffset(8));
+    }
+    
+    @Test
+    void testFrom_path_close(@TempDir Path directory) throws IOException {
+        var path = directory.resolve("code.txt");
+        Files.writeString(path, "first\nsecond\nthird", UTF_8);
+        
+        var code = Code.from(path, UTF_8);
+        try (var mapped = (MappedStr)code.content()) {
+            assertEquals("second", code.line(1));
+        }
+        assertTrue(((MappedStr)code.content()).isClosed());
+        
+        Files.delete(path);
+        assertFalse(Files.exists(path));
+    }
+    
+    //== Parallel ==
+    
+    private static String randomLines(Random random, int length) {
+        var newLines = new String[] { "\n", "\r", "\r\n" };
+        var builder  = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append("x".repeat(random.nextInt(5)));
+            builder.append(newLines[random.nextInt(newLines.length)]);
+        }
+        return builder.toString();
+    }
+    
+    @Test
+    void testProcessAllLinesInParallel() {
+        var random = new Random(7);
+        var pool   = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                var content    = randomLines(random, 2000);
+                var sequential = new Code(content);
+                sequential.processToLineCount(Integer.MAX_VALUE);
+                
+                for (int chunkLength : new int[] { 2, 3, 7, 64, 5000 }) {
+                    var parallel = new Code(content);
+                    parallel.processToLineCount(random.nextInt(10));
+                    parallel.processAllLinesInParallel(pool, chunkLength);
+                    assertEquals(sequential.newlineOffsets().toString(), parallel.newlineOffsets().toString());
+                    assertEquals(sequential.lineCount(),                 parallel.lineCount());
+                    assertEquals(sequential.lines().toString(),          parallel.lines().toString());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    void testProcessAllLines_parallelThreshold() {
+        var content = "first\r\nsecond\nthird\rforth";
+        Run.with(Code.ParallelThreshold.butWith(4)).run(() -> {
+            var code = new Code(content);
+            code.processAllLines();
+            assertEquals(4,                               code.knownLineCount() + 1);
+            assertEquals("[first, second, third, forth]", code.lines().toString());
+        });
+    }
+    
+    @Test
+    void testProcessLines_longLinesAndBlockBoundaries() {
+        var random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            var builder = new StringBuilder();
+            while (builder.length() < 20_000) {
+                builder.append("y".repeat(random.nextInt(300)));
+                builder.append(random.nextBoolean() ? "\r\n" : (random.nextBoolean() ? "\r" : "\n"));
+            }
+            var content  = builder.toString();
+            var expected = new Code(content);
+            expected.processAllLinesInParallel(ForkJoinPool.commonPool(), 1000);
+            
+            var code = new Code(content);
+            for (int line = 0; line < expected.lineCount(); line += 1 + random.nextInt(3)) {
+                assertEquals(expected.line(line), code.line(line));
+            }
+            assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+        }
+    }
+    
+    @Test
+    void testIndexInBackground_steps() {
+        var random  = new Random(11);
+        var content = randomLines(random, Code.BACKGROUND_STEP_LENGTH*5/2).replace('\r', '\n');
+        var steps   = new ArrayDeque<Runnable>();
+        var code    = new Code(content).indexInBackground(steps::add);
+        assertEquals(1, steps.size());
+        
+        steps.poll().run();
+        assertEquals(Code.BACKGROUND_STEP_LENGTH, code.processedOffset());
+        
+        // Queries within the indexed part do not index any further.
+        var lineCount = code.knownLineCount();
+        assertEquals(content.substring(code.startOffset(lineCount - 1), code.endOffset(lineCount - 1)),
+                     code.line(lineCount - 1));
+        assertEquals(lineCount - 1,               code.lineNumberAtOffset(code.startOffset(lineCount - 1)));
+        assertEquals(Code.BACKGROUND_STEP_LENGTH, code.processedOffset());
+        
+        // A query past the indexed part indexes up to what it needs and the next step goes on from there.
+        code.lineNumberAtOffset(Code.BACKGROUND_STEP_LENGTH + 10);
+        int queried = code.processedOffset();
+        steps.poll().run();
+        assertEquals(queried + Code.BACKGROUND_STEP_LENGTH, code.processedOffset());
+        
+        while (!steps.isEmpty()) {
+            steps.poll().run();
+        }
+        assertEquals(content.length(), code.processedOffset());
+        
+        var expected = new Code(content);
+        assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+    }
+    
+    @Test
+    void testBackgroundIndexing() {
+        var random   = new Random(13);
+        var content  = randomLines(random, Code.BACKGROUND_STEP_LENGTH*8);
+        var expected = new Code(content);
+        expected.processAllLines();
+        
+        Run.with(Code.BackgroundIndexing.butWith(true)).run(() -> {
+            var code = new Code(content);
+            for (int i = 0; i < 200; i++) {
+                int offset = random.nextInt(content.length());
+                int line   = expected.lineNumberAtOffset(offset);
+                assertEquals(line,                 code.lineNumberAtOffset(offset));
+                assertEquals(expected.line(line),  code.line(line));
+            }
+            assertEquals(expected.lineCount(),                 code.lineCount());
+            assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+        });
+    }
+    
+    @Test
+    void testSharedBetweenThreads() throws Exception {
+        var random   = new Random(17);
+        var content  = randomLines(random, 200_000);
+        var expected = new Code(content);
+        expected.processAllLines();
+        
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 5; round++) {
+                var code  = new Code(content);
+                var tasks = new ArrayList<Callable<Void>>();
+                for (int t = 0; t < 8; t++) {
+                    var taskRandom = new Random(round*8 + t);
+                    tasks.add(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            int offset = taskRandom.nextInt(content.length());
+                            int line   = expected.lineNumberAtOffset(offset);
+                            assertEquals(line,                         code.lineNumberAtOffset(offset));
+                            assertEquals(expected.startOffset(line),   code.startOffset(line));
+                            assertEquals(expected.lineLn(line),        code.lineLn(line));
+                        }
+                        return null;
+                    });
+                }
+                for (var future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+                assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    void testProcessLines_budget() {
+        var content  = "line\n".repeat(1000);
+        var code     = new Code(content);
+        var progress = code.processLines(0);
+        assertEquals(new LineProgress(0, 5000, 0), progress);
+        assertEquals(0.0,                          progress.ratio());
+        
+        progress = code.processLines(12);
+        assertEquals(new LineProgress(12, 5000, 2), progress);
+        assertEquals(false,                         progress.isDone());
+        assertEquals(4988,                          progress.remaining());
+        
+        int steps = 1;
+        while (!code.processLines(1000).isDone()) {
+            steps++;
+        }
+        assertEquals(5,                               steps);
+        assertEquals(new LineProgress(5000, 5000, 1000), code.lineProgress());
+        assertEquals(1.0,                               code.lineProgress().ratio());
+        assertEquals(1001,                              code.lineCount());
+        
+        assertThrows(IllegalArgumentException.class, () -> code.processLines(-1));
+    }
+    
+    @Test
+    void testProcessLines_deadline() {
+        var content = randomLines(new Random(19), 100_000);
+        var code    = new Code(content);
+        
+        var progress = code.processLinesUntil(System.nanoTime() - 1);
+        assertEquals(0, progress.processedOffset());
+        
+        progress = code.processLinesFor(Duration.ofMinutes(1));
+        assertEquals(true, progress.isDone());
+        
+        var expected = new Code(content);
+        assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+    }
+    
+    @Test
+    void testCompactLines() {
+        var random   = new Random(31);
+        var content  = randomLines(random, 20_000);
+        var expected = new Code(content);
+        expected.processAllLines();
+        
+        Run.with(Code.CompactLineCount.butWith(100)).run(() -> {
+            var code = new Code(content);
+            code.processToLineCount(99);
+            assertEquals(0, code.compactedLineCount());
+            
+            code.processToLineCount(100);
+            assertEquals(100, code.compactedLineCount());
+            
+            for (int i = 0; i < 500; i++) {
+                int offset = random.nextInt(content.length());
+                int line   = expected.lineNumberAtOffset(offset);
+                assertEquals(line,                 code.lineNumberAtOffset(offset));
+                assertEquals(expected.lineLn(line), code.lineLn(line));
+            }
+            assertEquals(expected.lineCount(),                 code.lineCount());
+            assertEquals(expected.knownLineCount(),            code.compactedLineCount());
+            assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+        });
+        
+        var code = new Code(content);
+        code.processToLineCount(10);
+        code.compactLines();
+        assertEquals(10, code.compactedLineCount());
+        assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+    }
+    
+    @Test
+    void testLineFinger_walks() {
+        var random  = new Random(43);
+        var content = randomLines(random, 5_000);
+        
+        // Brute force the line of each offset.
+        var lineOf = new int[content.length()];
+        int line   = 0;
+        for (int offset = 0; offset < content.length(); offset++) {
+            lineOf[offset] = line;
+            char ch = content.charAt(offset);
+            boolean isCrLf = (ch == '\r') && (offset + 1 < content.length()) && (content.charAt(offset + 1) == '\n');
+            if (((ch == '\r') && !isCrLf) || (ch == '\n')) {
+                line++;
+            }
+        }
+        
+        var code = new Code(content);
+        for (int offset = 0; offset < content.length(); offset++) {
+            assertEquals(lineOf[offset], code.lineNumberAtOffset(offset), "offset=" + offset);
+        }
+        for (int offset = content.length() - 1; offset >= 0; offset -= 1 + random.nextInt(5)) {
+            assertEquals(lineOf[offset], code.lineNumberAtOffset(offset), "offset=" + offset);
+        }
+        
+        var expected = new Code(content);
+        expected.processAllLines();
+        var walker = new Code(content);
+        for (int i = 0; i < expected.lineCount(); i++) {
+            assertEquals(expected.startOffset(i), walker.startOffset(i));
+            assertEquals(expected.endOffset(i),   walker.endOffset(i));
+            assertEquals(expected.lineLn(i),      walker.lineLn(i));
+            assertEquals(i, walker.lineNumberAtOffset(walker.startOffset(i)));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> walker.startOffset(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> walker.endOffset(expected.lineCount()));
+    }
+    
+    @Test
+    void testPositionsOf() {
+        var random   = new Random(47);
+        var content  = randomLines(random, 20_000);
+        var expected = new Code(content);
+        
+        for (boolean isSorted : new boolean[] { true, false }) {
+            var offsets = new int[2_000];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = random.nextInt(content.length() + 1);
+            }
+            if (isSorted) {
+                Arrays.sort(offsets);
+            }
+            
+            var code    = new Code(content);
+            var lines   = new int[offsets.length];
+            var columns = new int[offsets.length];
+            code.positionsOf(offsets, lines, columns);
+            for (int i = 0; i < offsets.length; i++) {
+                int line = expected.lineNumberAtOffset(offsets[i]);
+                assertEquals(line,                                     lines[i]);
+                assertEquals(offsets[i] - expected.startOffset(line), columns[i]);
+            }
+            
+            var back = new int[offsets.length];
+            new Code(content).offsetsOf(lines, columns, back);
+            assertEquals(Arrays.toString(offsets), Arrays.toString(back));
+        }
+    }
+    
+    @Test
+    void testPositionsOf_invalid() {
+        var code = new Code("first\r\nsecond\nthird");
+        var out  = new int[3];
+        
+        code.positionsOf(new int[] { 19, 0, 7 }, out, new int[3]);
+        assertEquals("[2, 0, 1]", Arrays.toString(out));
+        
+        code.offsetsOf(new int[] { 0, 1, 2 }, new int[] { 6, 6, 5 }, out);
+        assertEquals("[6, 13, 19]", Arrays.toString(out));
+        
+        assertEquals(
+                "Offset out of bound: offset=20, length=19",
+                assertThrows(IndexOutOfBoundsException.class,
+                        () -> code.positionsOf(new int[] { 20 }, out, out)).getMessage());
+        assertEquals(
+                "The 'columns' array is too short: length=0, required=1",
+                assertThrows(IllegalArgumentException.class,
+                        () -> code.positionsOf(new int[] { 1 }, out, new int[0])).getMessage());
+        assertEquals(
+                "Column out of bound: lineNumber=0, column=7, lineLength=6",
+                assertThrows(IndexOutOfBoundsException.class,
+                        () -> code.offsetsOf(new int[] { 0 }, new int[] { 7 }, out)).getMessage());
+        assertEquals(
+                "Line number must be less than the line count: lineNumber=3, lineCount=3",
+                assertThrows(IndexOutOfBoundsException.class,
+                        () -> code.offsetsOf(new int[] { 3 }, new int[] { 0 }, out)).getMessage());
+    }
+    
+    @Test
+    void testLineText() {
+        var content = randomLines(new Random(53), 3_000);
+        var code    = new Code(content);
+        var plain   = new Code(content);
+        for (int i = 0; i < plain.lineCount(); i++) {
+            assertEquals(plain.line(i),   code.lineText(i).toString());
+            assertEquals(plain.lineLn(i), code.lineLnText(i).toString());
+            assertSame(code.content(),    code.lineText(i).full());
+        }
+        assertEquals(plain.lines().toString(),  code.lineTexts().map(Object::toString).toString());
+        assertEquals(plain.lineLns().toString(), code.lineLnTexts().map(Object::toString).toString());
+        
+        // A line of a part points to the original text.
+        var full    = Text.Str("ignored\nfirst\nsecond\n");
+        var partial = new Code(Text.Part(full, 8, 21));
+        assertEquals("second", partial.lineText(1).toString());
+        assertSame(full,       partial.lineText(1).full());
+        assertEquals(14,       partial.lineText(1).start());
+    }
+    
+    @Test
+    void testLastLines() {
+        var code = new Code("first\r\nsecond\nthird\rforth\n");
+        assertEquals("[third, forth, ]", code.lastLines(3).toString());
+        // The lines found backward are kept apart from the lines processed forward.
+        assertEquals(0,     code.knownLineCount());
+        assertEquals(false, code.isProcessedAll());
+        assertEquals(14,    code.startOffsetFromEnd(2));
+        assertEquals(19,    code.endOffsetFromEnd(2));
+        assertEquals("forth", code.lineFromEnd(1));
+        
+        // More lines than there are -- the backward scan reaches the start and all lines are processed.
+        assertEquals("[first, second, third, forth, ]", code.lastLines(10).toString());
+        assertEquals(true, code.isProcessedAll());
+        assertEquals("[6, 13, 19, 25]", code.newlineOffsets().toString());
+        assertEquals("first", code.lineFromEnd(4));
+        assertEquals(
+                "Line number must be less than the line count: lineNumberFromEnd=5, lineCount=5",
+                assertThrows(IndexOutOfBoundsException.class, () -> code.lineFromEnd(5)).getMessage());
+        
+        assertEquals("[]",      new Code("").lastLines(0).toString());
+        assertEquals("[]",      new Code("").lastLines(3).toString());
+        assertEquals("[, ]",    new Code("\r\n").lastLines(3).toString());
+        assertEquals("[, , ]",  new Code("\n\r").lastLines(3).toString());
+    }
+    
+    @Test
+    void testLastLines_meetForward() {
+        var random = new Random(67);
+        for (int round = 0; round < 50; round++) {
+            var content  = randomLines(random, 2_000);
+            var expected = new Code(content);
+            var lines    = expected.lines().toList();
+            int count    = lines.size();
+            
+            // Forward and backward in turns until they meet.
+            var code = new Code(content);
+            for (int step = 0; !code.isProcessedAll(); step++) {
+                if (step % 2 == 0) {
+                    code.processLines(random.nextInt(300));
+                } else {
+                    int last = random.nextInt(count + 1);
+                    assertEquals(lines.subList(count - last, count), code.lastLines(last).toList());
+                }
+                assertTrue(code.isProcessedAll() || (code.processedOffset() < code.tailOffset()));
+            }
+            assertEquals(expected.newlineOffsets(), code.newlineOffsets());
+            for (int i = 0; i < count; i++) {
+                assertEquals(lines.get(count - 1 - i), code.lineFromEnd(i));
+                assertEquals(expected.startOffset(count - 1 - i), code.startOffsetFromEnd(i));
+            }
+            
+            // The forward processing stops at the lines found backward and then takes them.
+            var other = new Code(content);
+            other.processLastLines(random.nextInt(count));
+            assertEquals(expected.newlineOffsets(), other.newlineOffsets());
+            assertEquals(count, other.lineCount());
+        }
+    }
+    
+    @Test
+    void testLastLines_parallel() {
+        var content  = randomLines(new Random(71), 100_000);
+        var expected = new Code(content);
+        var pool     = new ForkJoinPool(4);
+        try {
+            var code = new Code(content);
+            code.processLastLines(1000);
+            code.processAllLinesInParallel(pool, 1000);
+            assertEquals(expected.newlineOffsets(), code.newlineOffsets());
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    void testApplyEdit() {
+        var code   = new Code("first\r\nsecond\nthird");
+        var edited = code.applyEdit(6, 0, "-\n-");
+        assertEquals("first\r-\n-\nsecond\nthird",          edited.content().toString());
+        assertEquals("[first, -, -, second, third]",        edited.lines().toString());
+        assertEquals("[first, second, third]",              code.lines().toString());
+        
+        // A '\r' and a '\n' joined and split by edits.
+        assertEquals("[ab, cd]",     new Code("ab\rx\ncd").applyEdit(3, 1, "").lines().toString());
+        assertEquals("[ab, x, cd]",  new Code("ab\r\ncd").applyEdit(3, 0, "x").lines().toString());
+        assertEquals("[ab, , cd]",   new Code("ab\r\ncd").applyEdit(3, 0, "\r").lines().toString());
+        assertEquals("[a, b]",       new Code("a\r").applyEdit(2, 0, "\nb").lines().toString());
+        
+        assertEquals(
+                "Edit out of bound: offset=20, deletedLength=1, length=19",
+                assertThrows(IndexOutOfBoundsException.class, () -> code.applyEdit(20, 1, "")).getMessage());
+        assertEquals(
+                "The offset and the deleted length must not be negative: offset=0, deletedLength=-1",
+                assertThrows(IllegalArgumentException.class, () -> code.applyEdit(0, -1, "")).getMessage());
+        assertSame(code, code.applyEdit(3, 0, ""));
+    }
+    
+    @Test
+    void testApplyEdit_random() {
+        var random  = new Random(101);
+        var inserts = new String[] { "", "x", "\n", "\r", "\r\n", "y\rz", "\n\r", "long line\r\nand more\n" };
+        for (int round = 0; round < 20; round++) {
+            var content = new StringBuilder(randomLines(random, 500));
+            var code    = new Code(content.toString());
+            if (random.nextBoolean()) {
+                code.processLines(random.nextInt(content.length()));
+            }
+            
+            for (int step = 0; step < 100; step++) {
+                int offset  = random.nextInt(content.length() + 1);
+                int deleted = Math.min(random.nextInt(4), content.length() - offset);
+                var insert  = inserts[random.nextInt(inserts.length)];
+                content.replace(offset, offset + deleted, insert);
+                code = code.applyEdit(offset, deleted, insert);
+                
+                if (random.nextInt(5) == 0) {
+                    code.processLinesToOffset(random.nextInt(content.length() + 1));
+                }
+                var expected = new Code(content.toString());
+                assertEquals(expected.lineCount(),                 code.lineCount());
+                assertEquals(expected.newlineOffsets().toString(), code.newlineOffsets().toString());
+                assertEquals(expected.lineLns().toString(),        code.lineLns().toString());
+                for (int i = 0; i < 20; i++) {
+                    int at = random.nextInt(content.length() + 1);
+                    assertEquals(expected.lineNumberAtOffset(at), code.lineNumberAtOffset(at));
+                }
+            }
+        }
+    }
+    
+    @Test
+    void testApplyEdit_manyEdits() {
+        // Many edits at different places -- each splits the shared newline offsets into more pieces.
+        var random  = new Random(103);
+        var content = new StringBuilder(randomLines(random, 5_000));
+        var code    = new Code(content.toString());
+        code.processAllLines();
+        for (int step = 0; step < 1000; step++) {
+            int offset = random.nextInt(content.length() + 1);
+            content.insert(offset, "\n");
+            code = code.applyEdit(offset, 0, "\n");
+            assertTrue(code.isProcessedAll());
+        }
+        assertEquals(new Code(content.toString()).newlineOffsets().toString(), code.newlineOffsets().toString());
+    }
+    
+    @Test
+    void testApplyEdit_samePlace() {
+        // Typing lines at the same place -- the small pieces of the newline offsets are merged along the way.
+        var random  = new Random(107);
+        var content = new StringBuilder(randomLines(random, 2_000));
+        var code    = new Code(content.toString());
+        code.processAllLines();
+        int offset  = content.length() / 2;
+        for (int step = 0; step < 2500; step++) {
+            var text = (step % 3 == 0) ? "\r\n" : ((step % 3 == 1) ? "x" : "\n");
+            content.insert(offset, text);
+            code    = code.applyEdit(offset, 0, text);
+            offset += text.length();
+        }
+        assertEquals(new Code(content.toString()).newlineOffsets().toString(), code.newlineOffsets().toString());
+        assertEquals(content.toString(), code.content().toString());
+    }
+    
+    @Test
+    void testApplyEdit_notRetained() throws Exception {
+        var code = new Code(randomLines(new Random(109), 10_000));
+        code.processAllLines();
+        code = code.applyEdit(10, 0, "x");
+        
+        var first   = new WeakReference<>(code);
+        var content = new WeakReference<>(code.content());
+        for (int i = 0; i < 1000; i++) {
+            code = code.applyEdit((i*37) % code.length(), 1, "ab\n");
+        }
+        for (int i = 0; (i < 20) && ((first.get() != null) || (content.get() != null)); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(first.get() == null);
+        assertTrue(content.get() == null);
+        
+        // The edited content only has the leaves -- never an earlier content or a part of it.
+        var leaves = ((Sequence)code.content()).sequence();
+        assertTrue(leaves.noneMatch(text -> text.isSequence() || ((text instanceof Part part) && part.full().isSequence())));
+    }
+    
+    @Test
+    void testApplyEdits() {
+        var code   = new Code("first\nsecond\nthird");
+        var edited = code.applyEdits(List.of(
+                new CodeEdit(12, 1, "\r\n"),
+                new CodeEdit(0, 5, "1st"),
+                new CodeEdit(6, 0, "(2) "),
+                new CodeEdit(6, 0, "-> ")));
+        assertEquals("1st\n(2) -> second\r\nthird", edited.content().toString());
+        assertEquals("[1st, (2) -> second, third]",  edited.lines().toString());
+        
+        assertEquals(
+                "The edits overlap: CodeEdit[offset=0, deletedLength=3, insertedText=], "
+              + "CodeEdit[offset=2, deletedLength=0, insertedText=x]",
+                assertThrows(IllegalArgumentException.class,
+                        () -> code.applyEdits(List.of(new CodeEdit(2, 0, "x"), new CodeEdit(0, 3, ""))))
+                    .getMessage());
+    }
+    
 }
@@ -0,0 +1,64 @@
+package net.nawaman.textj.code;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileFollowerTest {
+    
+    @Test
+    void testPoll(@TempDir Path directory) throws IOException {
+        var path  = directory.resolve("log.txt");
+        var bytes = "first\r\nsecond: café\nthird".getBytes(UTF_8);
+        Files.write(path, new byte[0]);
+        
+        var follower = GrowingCode.follow(path, UTF_8);
+        assertEquals(0, follower.poll());
+        
+        // Split in the middle of the '\r\n' and of the 'é'.
+        int split1 = 6;
+        int split2 = 19;
+        Files.write(path, Arrays.copyOfRange(bytes, 0, split1), APPEND);
+        assertEquals(6, follower.poll());
+        assertEquals("[first, ]", follower.snapshot().lines().toString());
+        
+        Files.write(path, Arrays.copyOfRange(bytes, split1, split2), APPEND);
+        follower.poll();
+        assertEquals("[first, second: caf]", follower.snapshot().lines().toString());
+        
+        Files.write(path, Arrays.copyOfRange(bytes, split2, bytes.length), APPEND);
+        follower.poll();
+        assertEquals("[first, second: café, third]", follower.snapshot().lines().toString());
+        assertEquals("[6, 19]",                      follower.snapshot().newlineOffsets().toString());
+        assertEquals(bytes.length,                   follower.position());
+        assertEquals(0,                              follower.poll());
+        
+        Files.write(path, "short".getBytes(UTF_8), TRUNCATE_EXISTING);
+        assertEquals(
+                "The followed file has shrunk: path=%s, size=5, position=%d".formatted(path, bytes.length),
+                assertThrows(IOException.class, follower::poll).getMessage());
+    }
+    
+    @Test
+    void testPoll_large(@TempDir Path directory) throws IOException {
+        var path    = directory.resolve("log.txt");
+        var content = "line: ü\r\n".repeat(20_000);
+        Files.writeString(path, content, UTF_8);
+        
+        var follower = GrowingCode.follow(path, UTF_8);
+        assertEquals(content.length(), follower.poll());
+        assertEquals(20_001,           follower.snapshot().lineCount());
+        assertEquals(content,          follower.snapshot().content().toString());
+    }
+    
+}
@@ -0,0 +1,212 @@
+package net.nawaman.textj.code;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import functionalj.ref.Run;
+import net.nawaman.textj.text.Sequence;
+
+class GrowingCodeTest {
+    
+    private static String randomLines(Random random, int length) {
+        var newLines = new String[] { "\n", "\r", "\r\n" };
+        var builder  = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append("x".repeat(random.nextInt(5)));
+            builder.append(newLines[random.nextInt(newLines.length)]);
+        }
+        return builder.toString();
+    }
+    
+    private static boolean isCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; (i < 20) && (reference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return reference.get() == null;
+    }
+    
+    private static void assertSameCode(String content, Code code) {
+        var expected = new Code(content);
+        assertEquals(content,                                    code.content().toString());
+        assertEquals(expected.lineCount(),                       code.lineCount());
+        assertEquals(expected.newlineOffsets().toString(),       code.newlineOffsets().toString());
+        assertEquals(expected.lineLns().toString(),              code.lineLns().toString());
+        for (int offset = 0; offset <= content.length(); offset += 7) {
+            assertEquals(expected.lineNumberAtOffset(offset), code.lineNumberAtOffset(offset));
+        }
+    }
+    
+    @Test
+    void testAppend() {
+        var code = new GrowingCode();
+        assertEquals("GrowingCode(length=0, lineCount=1)", code.toString());
+        
+        code.append("first\r");
+        var before = code.snapshot();
+        assertEquals("[first, ]", before.lines().toString());
+        
+        // The '\r' and the '\n' after become one newline.
+        code.append("\nsecond\n");
+        assertEquals("[first, second, ]", code.snapshot().lines().toString());
+        assertEquals("[6, 13]",           code.snapshot().newlineOffsets().toString());
+        assertEquals("GrowingCode(length=14, lineCount=3)", code.toString());
+        
+        // The snapshot before is not affected.
+        assertEquals("first\r",    before.content().toString());
+        assertEquals("[first, ]", before.lines().toString());
+        assertEquals("[5]",       before.newlineOffsets().toString());
+        
+        code.append("\r").append("third").append("\r").append("\r");
+        assertEquals("[first, second, , third, , ]", code.snapshot().lines().toString());
+        assertEquals(6,                              code.lineCount());
+    }
+    
+    @Test
+    void testAppend_random() {
+        var random = new Random(73);
+        for (int round = 0; round < 20; round++) {
+            var content   = randomLines(random, 3_000);
+            var code      = new GrowingCode();
+            var snapshots = new ArrayList<Code>();
+            var lengths   = new ArrayList<Integer>();
+            int offset    = 0;
+            while (offset < content.length()) {
+                int end = Math.min(offset + random.nextInt(20), content.length());
+                code.append(content.substring(offset, end));
+                offset = end;
+                if (random.nextInt(10) == 0) {
+                    assertSameCode(content.substring(0, offset), code.snapshot());
+                    snapshots.add(code.snapshot());
+                    lengths.add(offset);
+                }
+            }
+            assertSameCode(content, code.snapshot());
+            for (int i = 0; i < snapshots.size(); i++) {
+                assertSameCode(content.substring(0, lengths.get(i)), snapshots.get(i));
+            }
+        }
+    }
+    
+    @Test
+    void testAppend_compacted() {
+        var content = randomLines(new Random(79), 20_000);
+        Run.with(Code.CompactLineCount.butWith(100)).run(() -> {
+            var code      = new GrowingCode();
+            var snapshots = new ArrayList<Code>();
+            for (int offset = 0; offset < content.length(); offset += 1000) {
+                code.append(content.substring(offset, Math.min(offset + 1000, content.length())));
+                snapshots.add(code.snapshot());
+            }
+            assertTrue(code.snapshot().compactedLineCount() > 0);
+            for (int i = 0; i < snapshots.size(); i++) {
+                int length = Math.min((i + 1)*1000, content.length());
+                assertSameCode(content.substring(0, length), snapshots.get(i));
+            }
+        });
+    }
+    
+    @Test
+    void testAppendFrom() throws Exception {
+        var content = "first\r\nsecond: café\nthird";
+        
+        var fromReader = new GrowingCode();
+        assertEquals(content.length(), fromReader.appendFrom(new StringReader(content)));
+        assertSameCode(content, fromReader.snapshot());
+        
+        var fromStream = new GrowingCode().append("zero\r");
+        fromStream.appendFrom(new ByteArrayInputStream(("\n" + content).getBytes(UTF_8)), UTF_8);
+        assertSameCode("zero\r\n" + content, fromStream.snapshot());
+    }
+    
+    @Test
+    void testSnapshotsWhileAppending() throws Exception {
+        var content  = randomLines(new Random(83), 200_000);
+        var code     = new GrowingCode();
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var readers = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit((Callable<Integer>)() -> {
+                    int checks = 0;
+                    while (code.length() < content.length()) {
+                        var snapshot = code.snapshot();
+                        var text     = snapshot.content().toString();
+                        assertEquals(new Code(text).lineCount(), snapshot.lineCount());
+                        assertEquals(content.substring(0, text.length()), text);
+                        checks++;
+                    }
+                    return checks;
+                }));
+            }
+            for (int offset = 0; offset < content.length(); offset += 997) {
+                code.append(content.substring(offset, Math.min(offset + 997, content.length())));
+            }
+            for (var reader : readers) {
+                assertTrue(reader.get() >= 0);
+            }
+            assertSameCode(content, code.snapshot());
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+    
+    @Test
+    void testEditSnapshot() {
+        var code     = new GrowingCode().append("first\nsecond\r");
+        var snapshot = code.snapshot();
+        
+        // The pending '\r' is shared as any other newline.
+        assertSameCode("first\nsecond\r\nthird", snapshot.applyEdit(13, 0, "\nthird"));
+        assertSameCode("1st\nsecond\r",          snapshot.applyEdit(0, 5, "1st"));
+        assertSameCode("first\nsecond\r",        snapshot);
+    }
+    
+    @Test
+    void testAppend_mergedLeaves() {
+        var random  = new Random(29);
+        var code    = new GrowingCode();
+        var content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            // Mostly short lines with a long chunk now and then.
+            var text = (random.nextInt(50) == 0) ? randomLines(random, 3000) : ("Line " + i + "\n");
+            code.append(text);
+            content.append(text);
+        }
+        assertSameCode(content.toString(), code.snapshot());
+        
+        var leaves = ((Sequence)code.snapshot().content()).sequence();
+        assertEquals(content.toString(), leaves.map(Object::toString).join());
+        assertTrue(leaves.size() <= 2*content.length()/GrowingCode.LEAF_MERGE_LENGTH + 2, "leaves: " + leaves.size());
+    }
+    
+    @Test
+    void testSnapshotsNotRetained() throws Exception {
+        var code = new GrowingCode();
+        code.append("First line\n".repeat(200));
+        
+        var snapshot = new WeakReference<>(code.snapshot());
+        var content  = new WeakReference<>(code.snapshot().content());
+        for (int i = 0; i < 1000; i++) {
+            code.append("Line " + i + "\n");
+        }
+        assertTrue(isCollected(snapshot));
+        assertTrue(isCollected(content));
+        assertEquals(200 + 1000 + 1, code.lineCount());
+    }
+    
+}
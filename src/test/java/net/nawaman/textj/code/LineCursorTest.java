@@ -0,0 +1,114 @@
+package net.nawaman.textj.code;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LineCursorTest {
+    
+    private static String randomLines(Random random, int length) {
+        var newLines = new String[] { "\n", "\r", "\r\n" };
+        var builder  = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append("x".repeat(random.nextInt(random.nextInt(10) == 0 ? 20_000 : 40)));
+            builder.append(newLines[random.nextInt(newLines.length)]);
+        }
+        if (random.nextBoolean()) {
+            builder.append("tail");
+        }
+        return builder.toString();
+    }
+    
+    private static void assertAt(Code expected, LineCursor cursor, int line) {
+        var content = expected.content().toString();
+        int endLn   = (line + 1 < expected.lineCount()) ? expected.startOffset(line + 1) : content.length();
+        assertEquals(line,                                   cursor.line());
+        assertEquals(expected.startOffset(line),             cursor.start());
+        assertEquals(expected.endOffset(line),               cursor.end());
+        assertEquals(endLn,                                  cursor.endLn());
+        assertEquals(expected.line(line),                    cursor.text().toString());
+        assertEquals(content.substring(cursor.start(), endLn), cursor.textLn().toString());
+    }
+    
+    @Test
+    void testBasic() {
+        var code   = new Code("first\r\nsecond\nthird\rforth");
+        var cursor = code.cursor();
+        var logs   = new StringBuilder();
+        do {
+            logs.append(cursor).append("\n");
+        } while (cursor.next());
+        assertEquals(
+                "LineCursor(line=0, start=0, end=5, newLineKind=3)\n"
+              + "LineCursor(line=1, start=7, end=13, newLineKind=1)\n"
+              + "LineCursor(line=2, start=14, end=19, newLineKind=2)\n"
+              + "LineCursor(line=3, start=20, end=25, newLineKind=0)\n",
+                logs.toString());
+        assertFalse(cursor.next());
+        
+        assertTrue(cursor.prev());
+        assertEquals(2,  cursor.line());
+        assertEquals(20, cursor.endLn());
+        
+        cursor.seek(0);
+        assertFalse(cursor.prev());
+        assertEquals(2, LineCursor.newLineLength(cursor.newLineKind()));
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> code.cursorAt(4));
+    }
+    
+    @Test
+    void testWalk_notIndexed() {
+        var random = new Random(59);
+        for (int round = 0; round < 20; round++) {
+            var content  = randomLines(random, 50_000);
+            var expected = new Code(content);
+            var code     = new Code(content);
+            
+            var cursor = code.cursor();
+            int line   = 0;
+            do {
+                assertAt(expected, cursor, line++);
+            } while (cursor.next());
+            assertEquals(expected.lineCount(), line);
+            
+            // The cursor scans on its own so the index is not built by the walk.
+            assertTrue(code.knownLineCount() <= 2);
+            
+            while (cursor.prev()) {
+                assertAt(expected, cursor, --line - 1);
+            }
+            assertEquals(1, line);
+        }
+    }
+    
+    @Test
+    void testWalk_partlyIndexed() {
+        var random   = new Random(61);
+        var content  = randomLines(random, 50_000);
+        var expected = new Code(content);
+        int count    = expected.lineCount();
+        
+        for (int round = 0; round < 20; round++) {
+            var code = new Code(content);
+            code.processToLineCount(random.nextInt(count));
+            
+            int line   = random.nextInt(count);
+            var cursor = code.cursorAt(line);
+            for (int step = 0; step < 200; step++) {
+                assertAt(expected, cursor, line);
+                if (random.nextBoolean()) {
+                    line += cursor.next() ? 1 : 0;
+                } else {
+                    line -= cursor.prev() ? 1 : 0;
+                }
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,110 @@
+package net.nawaman.textj.code;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class NewLineScannerTest {
+    
+    private static int indexOf(String string, int from, int to) {
+        return NewLineScanner.indexOfNewLine(string.toCharArray(), from, to);
+    }
+    
+    private static int lastIndexOf(String string, int from, int to) {
+        return NewLineScanner.lastIndexOfNewLine(string.toCharArray(), from, to);
+    }
+    
+    @Test
+    void testIndexOfNewLine() {
+        assertEquals(-1, indexOf("", 0, 0));
+        assertEquals(-1, indexOf("abc", 0, 3));
+        assertEquals( 0, indexOf("\nabc", 0, 4));
+        assertEquals( 3, indexOf("abc\r", 0, 4));
+        assertEquals(10, indexOf("0123456789\n", 0, 11));
+        assertEquals(-1, indexOf("0123456789\n", 0, 10));
+        assertEquals(11, indexOf("\t\t\t\t\t\t\t\t\t\t\t\n", 0, 12));
+        assertEquals(17, indexOf("\n12345678\t1234567\r", 1, 18));
+    }
+    
+    @Test
+    void testIndexOfNewLine_random() {
+        var random = new Random(11);
+        var chars  = new char[] { 'a', ' ', '\t', '\u000B', '\u000C', '\n', '\r', '\u0000', '\u00FF' };
+        for (int round = 0; round < 1000; round++) {
+            var builder = new StringBuilder();
+            int length  = random.nextInt(200);
+            for (int i = 0; i < length; i++) {
+                builder.append(chars[random.nextInt(chars.length)]);
+            }
+            var string = builder.toString();
+            int from   = random.nextInt(length + 1);
+            
+            int expected = -1;
+            for (int i = from; i < length; i++) {
+                if ((string.charAt(i) == '\n') || (string.charAt(i) == '\r')) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, indexOf(string, from, length), () -> string.replace("\n", "\\n").replace("\r", "\\r"));
+            assertEquals(expected, NewLineScanner.scalarIndexOfNewLine(string.toCharArray(), from, length));
+        }
+    }
+    
+    @Test
+    void testLastIndexOfNewLine() {
+        assertEquals(-1, lastIndexOf("", 0, 0));
+        assertEquals(-1, lastIndexOf("abc", 0, 3));
+        assertEquals( 0, lastIndexOf("\nabc", 0, 4));
+        assertEquals( 3, lastIndexOf("abc\r", 0, 4));
+        assertEquals( 0, lastIndexOf("\n0123456789", 0, 11));
+        assertEquals(-1, lastIndexOf("\n0123456789", 1, 11));
+        assertEquals( 0, lastIndexOf("\n\t\t\t\t\t\t\t\t\t\t\t", 0, 12));
+        assertEquals( 0, lastIndexOf("\r12345678\t1234567\n", 0, 17));
+    }
+    
+    @Test
+    void testLastIndexOfNewLine_random() {
+        var random = new Random(13);
+        var chars  = new char[] { 'a', ' ', '\t', '\u000B', '\u000C', '\n', '\r', '\u0000', '\u00FF' };
+        for (int round = 0; round < 1000; round++) {
+            var builder = new StringBuilder();
+            int length  = random.nextInt(200);
+            for (int i = 0; i < length; i++) {
+                builder.append(chars[random.nextInt(chars.length)]);
+            }
+            var string = builder.toString();
+            int from   = random.nextInt(length + 1);
+            int to     = from + random.nextInt(length - from + 1);
+            
+            int expected = -1;
+            for (int i = to; --i >= from;) {
+                if ((string.charAt(i) == '\n') || (string.charAt(i) == '\r')) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, lastIndexOf(string, from, to), () -> string.replace("\n", "\\n").replace("\r", "\\r"));
+            assertEquals(expected, NewLineScanner.scalarLastIndexOfNewLine(string.toCharArray(), from, to));
+        }
+    }
+    
+    @Test
+    void testLongBlocks() {
+        // The vectorized scan is used with the profile "vector" (mvn -Pvector) -- otherwise, both are the scalar loop.
+        var random = new Random(17);
+        var chars  = new char[2000];
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (random.nextInt(100) == 0) ? "\n\r".charAt(random.nextInt(2)) : (char)random.nextInt(0x3000);
+            }
+            int from = random.nextInt(chars.length + 1);
+            int to   = from + random.nextInt(chars.length - from + 1);
+            assertEquals(NewLineScanner.scalarIndexOfNewLine    (chars, from, to), NewLineScanner.indexOfNewLine    (chars, from, to));
+            assertEquals(NewLineScanner.scalarLastIndexOfNewLine(chars, from, to), NewLineScanner.lastIndexOfNewLine(chars, from, to));
+        }
+    }
+    
+}
@@ -3,6 +3,7 @@ package net.nawaman.textj.internal;
 import static net.nawaman.textj.internal.BinarySearch.findIndex;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Random;
 import java.util.function.IntFunction;
 import java.util.function.IntUnaryOperator;
 
@@ -96,4 +97,61 @@ class BinarySearchTest {
         assertEquals( 8, findIndex(values, length, subLength, subStopIndex, 100));
     }
     
+    private static int expectedLowerBound(int[] values, int from, int to, int needle) {
+        int index = from;
+        while ((index < to) && (Math.abs(values[index]) < Math.abs(needle))) {
+            index++;
+        }
+        return index;
+    }
+    
+    private static int[] randomValues(Random random, int length, boolean isSkewed) {
+        var values = new int[length];
+        int value  = 0;
+        for (int i = 0; i < length; i++) {
+            value    += isSkewed ? (random.nextInt(10) == 0 ? 10_000 : 1) : (1 + random.nextInt(60));
+            values[i] = random.nextBoolean() ? -value : value;
+        }
+        return values;
+    }
+    
+    @Test
+    void testPrimitive() {
+        var values = new int[] { 10, -20, 30, -40, 50 };
+        assertEquals(0, BinarySearch.lowerBound(values, 0, 5,   5));
+        assertEquals(0, BinarySearch.lowerBound(values, 0, 5,  10));
+        assertEquals(1, BinarySearch.lowerBound(values, 0, 5,  15));
+        assertEquals(1, BinarySearch.lowerBound(values, 0, 5, -20));
+        assertEquals(5, BinarySearch.lowerBound(values, 0, 5,  55));
+        assertEquals(2, BinarySearch.lowerBound(values, 2, 2,  55));
+        
+        assertEquals(3, BinarySearch.interpolationLowerBound(values, 0, 5, 35));
+        assertEquals(3, BinarySearch.gallopLowerBound(values, 0, 5, 35, 0));
+        assertEquals(3, BinarySearch.gallopLowerBound(values, 0, 5, 35, 4));
+        assertEquals(3, BinarySearch.eytzingerLowerBound(BinarySearch.eytzinger(values, 0, 5), 35));
+        assertEquals(2, BinarySearch.eytzingerLowerBound(BinarySearch.eytzinger(values, 1, 5), 35));
+    }
+    
+    @Test
+    void testPrimitive_random() {
+        var random = new Random(37);
+        for (int round = 0; round < 200; round++) {
+            int length = random.nextInt(3000);
+            var values = randomValues(random, length, (round % 3) == 0);
+            int from   = (length == 0) ? 0 : random.nextInt(length);
+            int to     = from + ((length == from) ? 0 : random.nextInt(length - from + 1));
+            var layout = BinarySearch.eytzinger(values, from, to);
+            int max    = (length == 0) ? 10 : Math.abs(values[length - 1]) + 10;
+            for (int i = 0; i < 50; i++) {
+                int needle   = random.nextInt(max);
+                int hint     = from + random.nextInt(Math.max(to - from, 1));
+                int expected = expectedLowerBound(values, from, to, needle);
+                assertEquals(expected,        BinarySearch.lowerBound(values, from, to, needle));
+                assertEquals(expected,        BinarySearch.interpolationLowerBound(values, from, to, needle));
+                assertEquals(expected,        BinarySearch.gallopLowerBound(values, from, to, needle, hint));
+                assertEquals(expected - from, BinarySearch.eytzingerLowerBound(layout, needle));
+            }
+        }
+    }
+    
 }
@@ -0,0 +1,111 @@
+package net.nawaman.textj.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class EliasFanoIntArrayTest {
+    
+    private static int[] randomValues(Random random, int length, int maxGap) {
+        var values = new int[length];
+        int value  = 0;
+        for (int i = 0; i < length; i++) {
+            value    += 1 + random.nextInt(maxGap);
+            values[i] = random.nextBoolean() ? -value : value;
+        }
+        return values;
+    }
+    
+    private static int expectedIndexOf(int[] values, int needle) {
+        int index = 0;
+        while ((index < values.length) && (Math.abs(values[index]) < Math.abs(needle))) {
+            index++;
+        }
+        return index;
+    }
+    
+    @Test
+    void testEmpty() {
+        var array = EliasFanoIntArray.EMPTY;
+        assertEquals(0,    array.length());
+        assertEquals(true, array.isEmpty());
+        assertEquals("[]", array.values().toString());
+        assertEquals(0,    array.indexOf(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.get(0));
+    }
+    
+    @Test
+    void testBasic() {
+        var array = EliasFanoIntArray.of(new int[] { 0, 10, -21, 32, 43, 54, -65, 76, 87 }, 1, 9);
+        assertEquals(8,                                     array.length());
+        assertEquals("[10, -21, 32, 43, 54, -65, 76, 87]",  array.values().toString());
+        
+        assertEquals(0, array.indexOf( 0));
+        assertEquals(0, array.indexOf(-5));
+        assertEquals(0, array.indexOf(10));
+        assertEquals(1, array.indexOf(11));
+        assertEquals(1, array.indexOf(21));
+        assertEquals(2, array.indexOf(22));
+        assertEquals(7, array.indexOf(87));
+        assertEquals(8, array.indexOf(89));
+    }
+    
+    @Test
+    void testRandom() {
+        var random = new Random(23);
+        for (int maxGap : new int[] { 1, 2, 5, 40, 1000, 1_000_000 }) {
+            for (int length : new int[] { 1, 2, 63, 64, 65, 500 }) {
+                var values = randomValues(random, length, maxGap);
+                var array  = EliasFanoIntArray.of(values, 0, length);
+                assertEquals(length, array.length());
+                for (int i = 0; i < length; i++) {
+                    assertEquals(values[i], array.get(i));
+                }
+                
+                int max = Math.abs(values[length - 1]);
+                for (int i = 0; i < 500; i++) {
+                    int needle = random.nextInt(max + 2);
+                    assertEquals(expectedIndexOf(values, needle), array.indexOf(needle), "needle=" + needle);
+                }
+                for (int value : values) {
+                    assertEquals(expectedIndexOf(values, value), array.indexOf(value));
+                }
+            }
+        }
+    }
+    
+    @Test
+    void testOfIndex() {
+        var source = new SortedAbsoluteIntArray();
+        for (int i = 1; i <= 1000; i++) {
+            source.add(((i % 7) == 0) ? -i*3 : i*3);
+        }
+        var array = EliasFanoIntArray.of(source);
+        assertEquals(source.values().toString(), array.values().toString());
+        for (int needle = 0; needle < 3005; needle++) {
+            assertEquals(source.indexOf(needle), array.indexOf(needle));
+        }
+    }
+    
+    @Test
+    void testCompact() {
+        // Lines of about 40 characters take a few bits each instead of 32.
+        var values = randomValues(new Random(29), 100_000, 80);
+        var array  = EliasFanoIntArray.of(values, 0, values.length);
+        assertTrue(array.bitCount() < 10L*values.length, "bitCount=" + array.bitCount());
+    }
+    
+    @Test
+    void testInvalid() {
+        assertEquals(
+                "java.lang.IllegalArgumentException: The value -5 at 2 is less than the value before it.",
+                assertThrows(
+                    IllegalArgumentException.class,
+                    () -> EliasFanoIntArray.of(new int[] { 1, 10, -5 }, 0, 3)).toString());
+    }
+    
+}
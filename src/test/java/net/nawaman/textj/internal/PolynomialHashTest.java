@@ -0,0 +1,68 @@
+package net.nawaman.textj.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+class PolynomialHashTest {
+    
+    private static long hashOf(String string) {
+        return PolynomialHash.append(PolynomialHash.EMPTY, string.toCharArray(), 0, string.length());
+    }
+    
+    @Test
+    void testMultiply() {
+        var modulo = BigInteger.valueOf(PolynomialHash.MODULO);
+        long[] values = { 0, 1, 2, 12345, PolynomialHash.BASE, PolynomialHash.MODULO - 1, PolynomialHash.MODULO - 12345 };
+        for (long first : values) {
+            for (long second : values) {
+                long expected = BigInteger.valueOf(first).multiply(BigInteger.valueOf(second)).mod(modulo).longValue();
+                assertEquals(expected, PolynomialHash.multiply(first, second));
+            }
+        }
+    }
+    
+    @Test
+    void testPower() {
+        var modulo = BigInteger.valueOf(PolynomialHash.MODULO);
+        var base   = BigInteger.valueOf(PolynomialHash.BASE);
+        for (int exponent : new int[] { 0, 1, 2, 1023, 1024, 1025, 123_456, Integer.MAX_VALUE }) {
+            assertEquals(base.modPow(BigInteger.valueOf(exponent), modulo).longValue(), PolynomialHash.power(exponent));
+        }
+    }
+    
+    @Test
+    void testConcat() {
+        var left  = "Hello ";
+        var right = "World";
+        assertEquals(hashOf(left + right), PolynomialHash.concat(hashOf(left), hashOf(right), right.length()));
+        assertEquals(hashOf(left), PolynomialHash.concat(hashOf(left), PolynomialHash.EMPTY, 0));
+        assertEquals(hashOf(left), PolynomialHash.concat(PolynomialHash.EMPTY, hashOf(left), left.length()));
+    }
+    
+    @Test
+    void testSuffix() {
+        var prefix = "Hello ";
+        var suffix = "World";
+        assertEquals(hashOf(suffix), PolynomialHash.suffix(hashOf(prefix + suffix), hashOf(prefix), suffix.length()));
+    }
+    
+    @Test
+    void testRange() {
+        assertTrue(hashOf("Hello World") >= 0);
+        assertTrue(hashOf("Hello World") < PolynomialHash.MODULO);
+        assertTrue(hashOf("ab") != hashOf("ba"));
+    }
+    
+    @Test
+    void testLeadingNul() {
+        assertTrue(hashOf("a") != hashOf("\0a"));
+        assertTrue(hashOf("a") != hashOf("\0\0a"));
+        assertTrue(hashOf("") != hashOf("\0"));
+        assertTrue(PolynomialHash.EMPTY != PolynomialHash.append(PolynomialHash.EMPTY, '\0'));
+    }
+    
+}
@@ -1,8 +1,12 @@
 package net.nawaman.textj.internal;
 
+import static java.lang.Math.abs;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.jupiter.api.Test;
 
 import functionalj.ref.Run;
@@ -60,7 +64,7 @@ class SortedIntArrayTest {
         assertEquals(4, array.nextIndexInArray());
         
         array.add(54);
-        assertEquals("[[10, 21, 32, 43], [54, 0, 0, 0]]", array.xray());
+        assertEquals("[[10, 21, 32, 43], [54, 0, 0, 0, 0, 0, 0, 0]]", array.xray());
         assertEquals("[10, 21, 32, 43, 54]", array.values().toString());
         assertEquals(1, array.nextIndexInArray());
     }
@@ -107,7 +111,7 @@ class SortedIntArrayTest {
         array.add(-65);
         array.add(76);
         array.add(87);
-        assertEquals("[[10, -21, 32, 43], [54, -65, 76, 87]]", array.xray());
+        assertEquals("[[10, -21, 32, 43], [54, -65, 76, 87, 0, 0, 0, 0]]", array.xray());
         assertEquals("[10, -21, 32, 43, 54, -65, 76, 87]",     array.values().toString());
         
         assertEquals(0, array.indexOf( 0));
@@ -171,7 +175,7 @@ class SortedIntArrayTest {
         array.add(98);
         assertEquals(9, array.length());
         
-        assertEquals("[[10, -21, 32, 43], [54, -65, 76, 87], [98, 0, 0, 0]]", array.xray());
+        assertEquals("[[10, -21, 32, 43], [54, -65, 76, 87, 98, 0, 0, 0]]", array.xray());
         assertEquals("[10, -21, 32, 43, 54, -65, 76, 87, 98]",                array.values().toString());
     }
     
@@ -193,7 +197,7 @@ class SortedIntArrayTest {
         array.add(-65);
         array.add(76);
         array.add(87);
-        assertEquals("[[10, -21, 32, 43], [54, -65, 76, 87]]", array.xray());
+        assertEquals("[[10, -21, 32, 43], [54, -65, 76, 87, 0, 0, 0, 0]]", array.xray());
         assertEquals("[10, -21, 32, 43, 54, -65, 76, 87]",     array.values().toString());
         
         assertEquals( 10, array.get( 0));
@@ -231,4 +235,91 @@ class SortedIntArrayTest {
         assertEquals(false, array.isEmpty());
     }
     
+    @Test
+    void testGeometricArrays() {
+        var array = new SortedAbsoluteIntArray(2, 3);
+        assertEquals(4, array.arrayLength());
+        for (int i = 1; i <= 28; i++) {
+            array.add(i);
+        }
+        // The arrays are 4, 8 and 16 long.
+        assertEquals(
+                "[[1, 2, 3, 4], "
+                + "[5, 6, 7, 8, 9, 10, 11, 12], "
+                + "[13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28]]",
+                array.xray());
+        assertEquals(16, array.nextIndexInArray());
+        
+        for (int i = 0; i < 28; i++) {
+            assertEquals(i + 1, array.get(i));
+            assertEquals(i,     array.indexOf(i + 1));
+        }
+        assertEquals(28, array.indexOf(100));
+    }
+    
+    @Test
+    void testAddAll() {
+        var array = new SortedAbsoluteIntArray(2, 4);
+        array.add(5);
+        array.addAll(new int[] { 0, 10, -21, 32, 43, 54, -65, 76, 87, 98, 0 }, 1, 10);
+        assertEquals("[[5, 10, -21, 32], [43, 54, -65, 76, 87, 98, 0, 0]]", array.xray());
+        assertEquals("[5, 10, -21, 32, 43, 54, -65, 76, 87, 98]",          array.values().toString());
+        assertEquals(6,                                                    array.nextIndexInArray());
+        
+        array.addAll(new int[0], 0, 0);
+        assertEquals(10, array.length());
+        
+        // Nothing is added when any of the values is not larger.
+        assertEquals(
+                "java.lang.IllegalArgumentException: The value 100 is not larger than the last value 100.",
+                assertThrows(IllegalArgumentException.class, () -> array.addAll(new int[] { 99, 100, 100 }, 0, 3)).toString());
+        assertEquals(10, array.length());
+        
+        array.add(109);
+        assertEquals(109, array.get(10));
+    }
+    
+    @Test
+    void testIndexOf_hint() {
+        var random = new Random(41);
+        var array  = new SortedAbsoluteIntArray(2, 4);
+        var values = new int[5000];
+        int value  = 0;
+        for (int i = 0; i < values.length; i++) {
+            value    += 1 + random.nextInt(80);
+            values[i] = value;
+            array.add(random.nextBoolean() ? -value : value);
+        }
+        for (int i = 0; i < 2000; i++) {
+            int needle = random.nextInt(value + 10);
+            int hint   = random.nextInt(values.length + 2) - 1;
+            assertEquals(array.indexOf(needle), array.indexOf(needle, hint), "needle=" + needle + ", hint=" + hint);
+        }
+    }
+    
+    @Test
+    void testConcurrentReader() throws InterruptedException {
+        var array  = new SortedAbsoluteIntArray(2, 4);
+        var failed = new AtomicReference<String>();
+        var reader = new Thread(() -> {
+            while (array.length() < 100_000) {
+                int length = array.length();
+                if (length == 0) {
+                    continue;
+                }
+                int last = array.get(length - 1);
+                if ((abs(last) != length) || (array.indexOf(length) != length - 1)) {
+                    failed.set("length=" + length + ", last=" + last);
+                    return;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 100_000; i++) {
+            array.add(((i % 3) == 0) ? -i : i);
+        }
+        reader.join();
+        assertEquals(null, failed.get());
+    }
+    
 }
@@ -0,0 +1,159 @@
+package net.nawaman.textj.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class SplicedAbsoluteIntIndexTest {
+    
+    private static SortedAbsoluteIntArray arrayOf(int ... values) {
+        var array = new SortedAbsoluteIntArray();
+        array.addAll(values, 0, values.length);
+        return array;
+    }
+    
+    @Test
+    void testEmpty() {
+        assertEquals(0,    SplicedAbsoluteIntIndex.EMPTY.length());
+        assertEquals(0,    SplicedAbsoluteIntIndex.EMPTY.indexOf(5));
+        assertEquals("[]", SplicedAbsoluteIntIndex.EMPTY.toString());
+    }
+    
+    @Test
+    void testSplice() {
+        var array   = arrayOf(1, -3, 5, 8, -10, 12);
+        var spliced = new SplicedAbsoluteIntIndex.Builder()
+                .add(array, 0, 2, 0)
+                .add(EliasFanoIntArray.of(new int[] { 4, -6 }, 0, 2), 0, 2, 0)
+                .add(array, 3, 6, 2)
+                .build();
+        assertEquals("[1, -3, 4, -6, 10, -12, 14]", spliced.toString());
+        assertEquals(3, spliced.pieceCount());
+        assertEquals(0, spliced.indexOf(0));
+        assertEquals(1, spliced.indexOf(2));
+        assertEquals(2, spliced.indexOf(-4));
+        assertEquals(4, spliced.indexOf(7));
+        assertEquals(4, spliced.indexOf(10));
+        assertEquals(6, spliced.indexOf(13));
+        assertEquals(7, spliced.indexOf(15));
+        
+        // A piece of a spliced index is added as its pieces.
+        var again = new SplicedAbsoluteIntIndex.Builder().add(spliced, 1, 6, 1).build();
+        assertEquals("[-4, 5, -7, 11, -13]", again.toString());
+        assertEquals(3, again.pieceCount());
+        
+        assertEquals(
+                "The value 2 at 2 is less than the value before it.",
+                assertThrows(IllegalArgumentException.class,
+                        () -> new SplicedAbsoluteIntIndex.Builder().add(array, 0, 2, 0).add(array, 0, 1, 1))
+                    .getMessage());
+    }
+    
+    @Test
+    void testSplice_merged() {
+        var array   = arrayOf(1, -3, 5, 8, -10, 12);
+        var spliced = new SplicedAbsoluteIntIndex.Builder(4)
+                .add(array, 0, 2, 0)
+                .add(EliasFanoIntArray.of(new int[] { 4, -6 }, 0, 2), 0, 2, 0)
+                .add(array, 3, 6, 2)
+                .build();
+        assertEquals("[1, -3, 4, -6, 10, -12, 14]", spliced.toString());
+        assertEquals(2, spliced.pieceCount());
+        assertEquals(2, spliced.indexOf(-4));
+        assertEquals(4, spliced.indexOf(7));
+        
+        // The merged piece is added as it is and merged with the next small piece.
+        var again = new SplicedAbsoluteIntIndex.Builder(4)
+                .add(spliced, 1, 4, 1)
+                .add(arrayOf(20), 0, 1, 0)
+                .build();
+        assertEquals("[-4, 5, -7, 20]", again.toString());
+        assertEquals(1, again.pieceCount());
+    }
+    
+    @Test
+    void testSplice_random() {
+        assertSpliceRandomly(97, 0);
+    }
+    
+    @Test
+    void testSplice_randomMerged() {
+        assertSpliceRandomly(98, 5);
+    }
+    
+    @Test
+    void testSplice_manyPieces() {
+        // Every other value is spliced in at a different place -- none are merged so each is a piece of its own.
+        var array = arrayOf(IntStream.range(0, 2000).map(i -> 2*i).toArray());
+        SortedAbsoluteIntIndex index = array;
+        for (int i = 0; i < 2000; i++) {
+            int at = 2*i + 1;
+            index = new SplicedAbsoluteIntIndex.Builder()
+                    .add(index, 0, at, 0)
+                    .add(arrayOf(-(2*i + 1)), 0, 1, 0)
+                    .add(index, at, index.length(), 0)
+                    .build();
+        }
+        assertEquals(4000, ((SplicedAbsoluteIntIndex)index).pieceCount());
+        assertEquals(4000, index.length());
+        for (int i = 0; i < 4000; i++) {
+            assertEquals((i % 2 == 0) ? i : -i, index.get(i));
+            assertEquals(i, index.indexOf(i));
+        }
+        assertEquals(4000, index.indexOf(4000));
+    }
+    
+    private static void assertSpliceRandomly(long seed, int mergeLength) {
+        var random   = new Random(seed);
+        var values   = new ArrayList<Integer>();
+        var expected = new int[0];
+        SortedAbsoluteIntIndex index = SplicedAbsoluteIntIndex.EMPTY;
+        for (int round = 0; round < 300; round++) {
+            // Replace a range of values with new ones and shift the values after.
+            int from  = random.nextInt(expected.length + 1);
+            int to    = Math.min(from + random.nextInt(3), expected.length);
+            int low   = (from == 0) ? 0 : Math.abs(expected[from - 1]) + 1;
+            var added = new int[random.nextInt(3)];
+            for (int i = 0; i < added.length; i++) {
+                low     += random.nextInt(3);
+                added[i] = random.nextBoolean() ? low : -Math.max(low, 1);
+                low      = Math.abs(added[i]) + 1;
+            }
+            int shift = (to < expected.length) ? Math.max(low - Math.abs(expected[to]), 0) + random.nextInt(3) : 0;
+            
+            var builder = new SplicedAbsoluteIntIndex.Builder(mergeLength).add(index, 0, from, 0);
+            if (added.length != 0) {
+                builder.add(arrayOf(added), 0, added.length, 0);
+            }
+            index = builder.add(index, to, expected.length, shift).build();
+            
+            values.clear();
+            for (int i = 0; i < from; i++) {
+                values.add(expected[i]);
+            }
+            for (int value : added) {
+                values.add(value);
+            }
+            for (int i = to; i < expected.length; i++) {
+                int value = expected[i];
+                values.add((value < 0) ? (value - shift) : (value + shift));
+            }
+            expected = values.stream().mapToInt(Integer::intValue).toArray();
+            
+            assertEquals(expected.length, index.length());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], index.get(i));
+            }
+            int max = (expected.length == 0) ? 0 : Math.abs(expected[expected.length - 1]) + 2;
+            for (int needle = 0; needle <= max; needle++) {
+                assertEquals(BinarySearch.lowerBound(expected, 0, expected.length, needle), index.indexOf(needle));
+            }
+        }
+    }
+    
+}
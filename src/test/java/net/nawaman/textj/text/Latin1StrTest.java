@@ -0,0 +1,83 @@
+package net.nawaman.textj.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class Latin1StrTest {
+    
+    @Test
+    void testCompact() {
+        var str = Str.compact("Hello, World!");
+        assertTrue(str instanceof Latin1Str);
+        assertEquals("Hello, World!", str.toString());
+        assertEquals("Hello, World!", str.string());
+        assertEquals(13,              str.length());
+        assertEquals('W',             str.charAt(7));
+    }
+    
+    @Test
+    void testCompact_latin1() {
+        var str = Str.compact("Café");
+        assertTrue(str instanceof Latin1Str);
+        assertEquals("Café", str.toString());
+        assertEquals('é',    str.charAt(3));
+    }
+    
+    @Test
+    void testCompact_widen() {
+        var str = Str.compact("Hello, 世界");
+        assertTrue(!(str instanceof Latin1Str));
+        assertEquals("Hello, 世界", str.toString());
+    }
+    
+    @Test
+    void testCompact_null() {
+        assertEquals("", Str.compact(null).toString());
+    }
+    
+    @Test
+    void testBytes() {
+        var bytes = "[Hello]".getBytes();
+        var str   = new Latin1Str(bytes, 1, 5);
+        bytes[1] = 'J';
+        assertEquals("Hello", str.toString());
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> new Latin1Str(bytes, 3, 5));
+    }
+    
+    @Test
+    void testGetChars() {
+        var str   = Str.compact("Hello, World!");
+        var chars = new char[7];
+        str.getChars(7, 12, chars, 1);
+        assertEquals("World", new String(chars, 1, 5));
+        assertEquals("World", str.substring(7, 12));
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> str.getChars(7, 14, new char[10], 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> str.substring(7, 14));
+    }
+    
+    @Test
+    void testAsText() {
+        var compact = Str.compact("Hello, World!");
+        var str     = new Str("Hello, World!");
+        assertEquals(str, compact);
+        assertEquals(compact, str);
+        assertEquals(str.hashCode(),    compact.hashCode());
+        assertEquals(str.contentHash(), compact.contentHash());
+        assertEquals(0,                 compact.compareTo(str));
+        
+        var part = new Part(compact, 7, 12);
+        assertEquals("World", part.toString());
+        assertEquals(new Str("World").contentHash(), part.contentHash());
+        
+        var sequence = new Sequence(compact, Str.compact(" Bye!"));
+        assertEquals("Hello, World! Bye!", sequence.toString());
+        assertTrue(sequence.isStr() == false);
+        assertTrue(compact.isStr());
+    }
+    
+}
@@ -0,0 +1,133 @@
+package net.nawaman.textj.text;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedStrTest {
+    
+    @TempDir
+    Path directory;
+    
+    private Path write(String content, Charset charset) throws IOException {
+        var path = directory.resolve("text-" + charset.name() + ".txt");
+        Files.writeString(path, content, charset);
+        return path;
+    }
+    
+    private static String content() {
+        var builder = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            builder.append("Line ").append(i).append(": café 😀 世界\n");
+        }
+        return builder.toString();
+    }
+    
+    @Test
+    void testSingleByte() throws IOException {
+        var content = "Hello, World!\n".repeat(100);
+        var path    = write(content, ISO_8859_1);
+        var text    = MappedStr.map(path, ISO_8859_1, 16, 4);
+        assertEquals(content.length(), text.length());
+        assertEquals(content,          text.toString());
+        assertEquals(content,          text.string());
+        for (int i = 0; i < content.length(); i++) {
+            assertEquals(content.charAt(i), text.charAt(i));
+        }
+        assertTrue(text.cachedPageCount() <= 4);
+    }
+    
+    @Test
+    void testVariableWidth() throws IOException {
+        var content = content();
+        var path    = write(content, UTF_8);
+        var text    = MappedStr.map(path, UTF_8, 37, 3);
+        assertEquals(content.length(), text.length());
+        for (int i = content.length() - 1; i >= 0; i--) {
+            assertEquals(content.charAt(i), text.charAt(i), "index: " + i);
+        }
+        assertEquals(content, text.toString());
+        assertTrue(text.cachedPageCount() <= 3);
+    }
+    
+    @Test
+    void testUtf16() throws IOException {
+        var content = content();
+        var path    = write(content, UTF_16LE);
+        var text    = MappedStr.map(path, UTF_16LE, 50, 2);
+        assertEquals(content, text.toString());
+        assertEquals(content.substring(100, 400), text.substring(100, 400));
+    }
+    
+    @Test
+    void testRegionStraddle() throws IOException {
+        var content = content();
+        var path    = write(content, UTF_8);
+        var text    = new MappedStr(path, UTF_8, 64, 2, 100);
+        assertEquals(content, text.toString());
+        
+        var latin1 = write("Hello, World!\n".repeat(100), ISO_8859_1);
+        var single = new MappedStr(latin1, ISO_8859_1, 64, 2, 100);
+        assertEquals("Hello, World!\n".repeat(100), single.toString());
+    }
+    
+    @Test
+    void testEmpty() throws IOException {
+        var path = write("", UTF_8);
+        var text = MappedStr.map(path, UTF_8);
+        assertEquals(0,  text.length());
+        assertEquals("", text.toString());
+    }
+    
+    @Test
+    void testAsText() throws IOException {
+        var content = content();
+        var path    = write(content, UTF_8);
+        var text    = MappedStr.map(path, UTF_8, 64, 4);
+        
+        var part = new Part(text, 1000, 1050);
+        assertEquals(content.substring(1000, 1050), part.toString());
+        
+        var sequence = new Sequence(new Str(">>"), text);
+        assertEquals(">>" + content, sequence.toString());
+        assertEquals(new Str(content), text);
+        assertEquals(new Str(content).contentHash(), text.contentHash());
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> text.charAt(content.length()));
+    }
+    
+    @Test
+    void testClose() throws IOException {
+        var content = content();
+        var path    = write(content, UTF_8);
+        try (var text = MappedStr.map(path, UTF_8, 64, 4)) {
+            assertFalse(text.isClosed());
+            assertEquals(content.charAt(10), text.charAt(10));
+            
+            text.close();
+            assertTrue(text.isClosed());
+            assertEquals(0, text.cachedPageCount());
+            assertThrows(IllegalStateException.class, () -> text.charAt(10));
+            assertThrows(IllegalStateException.class, () -> text.toString());
+            
+            // Closing again does nothing.
+            text.close();
+        }
+        
+        Files.delete(path);
+        assertFalse(Files.exists(path));
+    }
+    
+}
@@ -79,4 +79,27 @@ class PartTest {
         part2 = new Part(testSequence, 7, 12);
         assertEquals("World", part2.toString());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testGetChars() {
+        var part  = new Part(testSequence, 7, 12);
+        var chars = new char[7];
+        part.getChars(1, 4, chars, 2);
+        assertEquals("orl", new String(chars, 2, 3));
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> part.getChars(0, 6, new char[10], 0));
+    }
+    
+    @Test
+    void testSubstring() {
+        var full = new Sequence(new Str("Hello"), new Str(", "), new Str("World!"));
+        var part = new Part(full, 3, 10);
+        assertEquals("lo, Wor", part.toString());
+        assertEquals("o, W",    part.substring(1, 5));
+        assertEquals("",        part.substring(7, 7));
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> part.substring(5, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> part.substring(-1, 2));
+    }
+    
+}
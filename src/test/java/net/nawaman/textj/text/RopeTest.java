@@ -0,0 +1,112 @@
+package net.nawaman.textj.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RopeTest {
+    
+    @Test
+    void testEmpty() {
+        assertNull(Rope.of((Text)null));
+        assertNull(Rope.of(new Str("")));
+        assertNull(Rope.of(new Text[0], 0, 0));
+    }
+    
+    @Test
+    void testCharAt() {
+        var texts = new Text[] { new Str("Hello"), new Str(" "), new Str("World") };
+        var rope  = Rope.of(texts, 0, texts.length);
+        assertEquals(11, rope.length());
+        
+        var string = "Hello World";
+        for (int i = 0; i < string.length(); i++) {
+            assertEquals(string.charAt(i), rope.fingerAt(i).charAt(i));
+        }
+    }
+    
+    @Test
+    void testBalanced_appendOneByOne() {
+        Rope rope = null;
+        for (int i = 0; i < 10_000; i++) {
+            rope = Rope.concat(rope, Rope.of(new Str("" + (i % 10))));
+        }
+        assertEquals(10_000, rope.length());
+        // AVL tree height is bounded by 1.44 log2(n).
+        assertTrue(rope.height() <= 20, "height: " + rope.height());
+        
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals((char)('0' + (i % 10)), rope.fingerAt(i).charAt(i));
+        }
+    }
+    
+    @Test
+    void testBalanced_prependOneByOne() {
+        Rope rope = null;
+        for (int i = 0; i < 10_000; i++) {
+            rope = Rope.concat(Rope.of(new Str("" + (i % 10))), rope);
+        }
+        assertEquals(10_000, rope.length());
+        assertTrue(rope.height() <= 20, "height: " + rope.height());
+        
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals((char)('0' + ((9_999 - i) % 10)), rope.fingerAt(i).charAt(i));
+        }
+    }
+    
+    @Test
+    void testFinger() {
+        var texts  = new Text[] { new Str("Hello"), new Str(" "), new Str("World") };
+        var rope   = Rope.of(texts, 0, texts.length);
+        var finger = rope.fingerAt(7);
+        assertEquals("World", finger.leaf().toString());
+        assertEquals(6,       finger.start());
+        assertEquals(11,      finger.end());
+        assertTrue(finger.contains(6));
+        assertTrue(!finger.contains(5));
+        assertEquals('o', finger.charAt(7));
+    }
+    
+    @Test
+    void testSlice() {
+        var texts = new Text[] { new Str("Hello"), new Str(" "), new Str("World") };
+        var rope  = Rope.of(texts, 0, texts.length);
+        assertNull(rope.slice(3, 3));
+        assertTrue(rope == rope.slice(0, 11));
+        
+        var slice = rope.slice(3, 8);
+        assertEquals(5, slice.length());
+        var chars = new char[5];
+        slice.getChars(0, 5, chars, 0);
+        assertEquals("lo Wo", new String(chars));
+    }
+    
+    @Test
+    void testSlice_editManyTimes() {
+        // Splicing a text into a sequence again and again stays as shallow as one balanced rope.
+        var random = new Random(89);
+        var string = new StringBuilder("0123456789");
+        Text text  = new Str(string.toString());
+        for (int i = 0; i < 2_000; i++) {
+            int start    = random.nextInt(string.length() + 1);
+            int end      = Math.min(start + random.nextInt(5), string.length());
+            var inserted = "" + (char)('a' + random.nextInt(26));
+            string.replace(start, end, inserted);
+            text = new Sequence(new Part(text, 0, start), new Str(inserted), new Part(text, end, text.length()));
+        }
+        assertEquals(string.toString(), text.toString());
+        
+        var rope = ((Sequence)text).rope();
+        assertTrue(rope.height() <= 40, "height: " + rope.height());
+        for (int i = 0; i < string.length(); i++) {
+            var leaf = rope.fingerAt(i).leaf();
+            assertTrue(!(leaf instanceof Sequence) && !Rope.isPartOfSequence(leaf), () -> leaf.getClass().toString());
+            assertEquals(string.charAt(i), text.charAt(i));
+        }
+    }
+    
+}
@@ -31,6 +31,15 @@ class SequenceTest {
         assertEquals("Hello World", seq.toString());
     }
     
+    @Test
+    void testConstructor_filtered() {
+        var list = FuncList.<Text>of(new Str("Hello"), null, new Str(""), new Str("World"));
+        var seq  = new Sequence(list);
+        assertEquals("[Hello, World]", seq.sequence().toString());
+        assertEquals(2,                seq.sequence().size());
+        assertEquals("HelloWorld",     seq.toString());
+    }
+    
     @Test
     void testCharAt() {
         var seq = new Sequence(new Str("Hello"), new Str(" "), new Str("World"));
@@ -41,6 +50,26 @@ class SequenceTest {
         assertEquals('d', seq.charAt(10));
     }
     
+    @Test
+    void testCharAt_accessPattern() {
+        var seq    = new Sequence(new Str("Hello"), new Str(" "), new Sequence(new Str("Wor"), new Str("ld")));
+        var string = "Hello World";
+        
+        // Forward
+        for (int i = 0; i < string.length(); i++) {
+            assertEquals(string.charAt(i), seq.charAt(i));
+        }
+        // Backward
+        for (int i = string.length() - 1; i >= 0; i--) {
+            assertEquals(string.charAt(i), seq.charAt(i));
+        }
+        // Jumping around
+        for (int i = 0; i < string.length(); i++) {
+            int index = (i * 7) % string.length();
+            assertEquals(string.charAt(index), seq.charAt(index));
+        }
+    }
+    
     @Test
     void testCharAtOutOfBounds() {
         var seq = new Sequence(new Str("Hello"), new Str(" "), new Str("World"));
@@ -78,4 +107,68 @@ class SequenceTest {
         var emptySeq = new Sequence();
         assertEquals("", emptySeq.toString());
     }
+    
+    @Test
+    void testNested() {
+        var expected = new StringBuilder();
+        var seq      = new Sequence();
+        for (int i = 0; i < 5_000; i++) {
+            var fragment = "[" + i + "]";
+            expected.append(fragment);
+            seq = new Sequence(seq, new Str(fragment));
+        }
+        assertEquals(expected.length(), seq.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), seq.charAt(i));
+        }
+        assertEquals(expected.substring(100, 120), seq.subSequence(100, 120).toString());
+    }
+    
+    @Test
+    void testNested_mixed() {
+        var inner = new Sequence(new Str("Hello"), new Str(" "));
+        var seq   = new Sequence(inner, new Str("World"), new Sequence(new Str("!")));
+        assertEquals("Hello World!", seq.toString());
+        assertEquals('W', seq.charAt(6));
+        assertEquals('!', seq.charAt(11));
+    }
+    
+    @Test
+    void testGetChars() {
+        var seq    = new Sequence(new Str("Hello"), new Str(" "), new Part(new Str("-World-"), 1, 6));
+        var string = "Hello World";
+        for (int start = 0; start <= string.length(); start++) {
+            for (int end = start; end <= string.length(); end++) {
+                var chars = new char[end - start + 2];
+                seq.getChars(start, end, chars, 1);
+                assertEquals(string.substring(start, end), new String(chars, 1, end - start));
+            }
+        }
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.getChars(-1,  2, new char[5], 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.getChars( 3,  2, new char[5], 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.getChars( 0, 12, new char[20], 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.getChars( 0,  5, new char[4], 0));
+    }
+    
+    @Test
+    void testGetChars_nested() {
+        var seq    = new Sequence(new Sequence(new Str("He"), new Str("llo")), new Str(" "), new Sequence(new Str("Wor"), new Str("ld")));
+        var string = "Hello World";
+        for (int start = 0; start <= string.length(); start++) {
+            for (int end = start; end <= string.length(); end++) {
+                var chars = new char[end - start];
+                seq.getChars(start, end, chars, 0);
+                assertEquals(string.substring(start, end), new String(chars));
+            }
+        }
+    }
+    
+    @Test
+    void testSubstring() {
+        var seq = new Sequence(new Str("Hello"), new Str(" "), new Str("World"));
+        assertEquals("lo Wo", seq.substring(3, 8));
+        assertEquals("World", seq.substring(6, 11));
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.substring(6, 12));
+    }
 }
\ No newline at end of file
@@ -71,4 +71,13 @@ class StrTest {
         assertThrows(IllegalArgumentException.class, () -> str.subSequence(0, 6));
         assertThrows(IllegalArgumentException.class, () -> str.subSequence(3, 2));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testGetChars() {
+        var str   = new Str("Hello, World!");
+        var chars = new char[5];
+        str.getChars(7, 12, chars, 0);
+        assertEquals("World", new String(chars));
+    }
+    
+}
@@ -0,0 +1,157 @@
+package net.nawaman.textj.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import functionalj.list.FuncList;
+import net.nawaman.textj.internal.PolynomialHash;
+
+class TextTest {
+    
+    private final Text str      = new Str("Hello World");
+    private final Text part     = new Part(new Str("[Hello World]"), 1, 12);
+    private final Text sequence = new Sequence(new Str("Hello"), new Str(" "), new Part(new Str("-World-"), 1, 6));
+    private final Text nested   = new Sequence(new Sequence(new Str("He"), new Str("llo")), new Str(" World"));
+    
+    @Test
+    void testEquals() {
+        var texts = new Text[] { str, part, sequence, nested };
+        for (var first : texts) {
+            for (var second : texts) {
+                assertEquals(first, second);
+                assertEquals(0, first.compareTo(second));
+            }
+        }
+        
+        assertNotEquals(str, new Str("Hello World!"));
+        assertNotEquals(str, new Sequence(new Str("Hello"), new Str(" world")));
+        assertNotEquals(str, "Hello World");
+    }
+    
+    @Test
+    void testEquals_samePartRange() {
+        var full = new Sequence(new Str("Hello"), new Str(" World"));
+        assertEquals(new Part(full, 2, 8), new Part(full, 2, 8));
+        assertEquals(new Part(full, 2, 8), new Part(new Str("Hello World"), 2, 8));
+    }
+    
+    @Test
+    void testHashCode() {
+        assertEquals(str.hashCode(), part.hashCode());
+        assertEquals(str.hashCode(), sequence.hashCode());
+        assertEquals(str.hashCode(), nested.hashCode());
+        
+        var map = new HashMap<Text, String>();
+        map.put(sequence, "value");
+        assertEquals("value", map.get(str));
+        assertEquals("value", map.get(part));
+    }
+    
+    @Test
+    void testContentHash() {
+        assertEquals(str.contentHash(), part.contentHash());
+        assertEquals(str.contentHash(), sequence.contentHash());
+        assertEquals(str.contentHash(), nested.contentHash());
+        assertNotEquals(str.contentHash(), new Str("Hello world").contentHash());
+        assertEquals(PolynomialHash.EMPTY, new Str("").contentHash());
+        assertEquals(PolynomialHash.EMPTY, new Sequence().contentHash());
+    }
+    
+    @Test
+    void testConcat() {
+        var first  = new Sequence(new Str("Hello"), new Str(" "));
+        var second = new Sequence(first, new Str("World"));
+        var concat = Text.concat(new Part(second, 0, 6), new Str("there "), null, new Str(""), new Part(second, 6, 11));
+        assertEquals("Hello there World", concat.toString());
+        assertEquals(new Str("Hello there World"), concat);
+        assertEquals(new Str("Hello there World").contentHash(), concat.contentHash());
+        
+        // Only the leaves are kept -- never the sequences they came from.
+        assertEquals("[Hello,  , there , World]", concat.sequence().toString());
+        assertTrue(concat.sequence().noneMatch(text -> (text instanceof Sequence) || ((text instanceof Part part) && (part.full() instanceof Sequence))));
+        
+        assertEquals("", Text.concat().toString());
+        assertEquals(0,  Text.concat().length());
+        assertEquals(0,  Text.concat().sequence().size());
+    }
+    
+    @Test
+    void testConcat_toMap() {
+        var concat = Text.concat(new Str("ab"), new Sequence(new Str("cd"), new Str("ef")));
+        var map    = concat.__toMap();
+        assertEquals("[ab, cd, ef]", map.get("sequence").toString());
+        
+        var fromMap = Sequence.caseFromMap(map);
+        assertEquals("abcdef",                     fromMap.toString());
+        assertEquals(concat.sequence().toString(), fromMap.sequence().toString());
+        
+        var plain = new Sequence(new Str("ab"), new Str("cd"));
+        assertEquals("abcd", Sequence.caseFromMap(plain.__toMap()).toString());
+        
+        // The texts may also be given as their maps.
+        var maps = new HashMap<String, Object>(plain.__toMap());
+        maps.put("sequence", plain.sequence().map(Text::__toMap).toJavaList());
+        assertEquals("abcd", Sequence.caseFromMap(maps).toString());
+    }
+    
+    @Test
+    void testContentHash_leadingNul() {
+        var text = new Str("a");
+        assertNotEquals(text.contentHash(), new Str("\0\0a").contentHash());
+        assertNotEquals(text.contentHash(), new Sequence(new Str("\0"), new Str("\0"), text).contentHash());
+        assertNotEquals(text.contentHash(), new Part(new Str("\0\0a"), 1, 3).contentHash());
+        assertEquals(new Str("\0a").contentHash(), new Part(new Str("\0\0a"), 1, 3).contentHash());
+    }
+    
+    @Test
+    void testContentHash_slices() {
+        var random  = new Random(42);
+        var builder = new StringBuilder();
+        var texts   = new ArrayList<Text>();
+        for (int i = 0; i < 50; i++) {
+            var fragment = randomString(random, random.nextInt(300));
+            builder.append(fragment);
+            texts.add(new Str(fragment));
+        }
+        var string   = builder.toString();
+        var flat     = new Sequence(FuncList.from(texts));
+        var nested   = new Sequence(new Sequence(FuncList.from(texts.subList(0, 20))), new Sequence(FuncList.from(texts.subList(20, 50))));
+        var whole    = new Str(string);
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(string.length());
+            int end   = start + random.nextInt(string.length() - start + 1);
+            long expected = new Str(string.substring(start, end)).contentHash();
+            assertEquals(expected, new Part(whole,  start, end).contentHash());
+            assertEquals(expected, new Part(flat,   start, end).contentHash());
+            assertEquals(expected, new Part(nested, start, end).contentHash());
+        }
+    }
+    
+    private static String randomString(Random random, int length) {
+        var chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char)(' ' + random.nextInt(95));
+        }
+        return new String(chars);
+    }
+    
+    @Test
+    void testCompareTo() {
+        assertTrue(new Str("abc").compareTo(new Sequence(new Str("ab"), new Str("d"))) < 0);
+        assertTrue(new Sequence(new Str("ab"), new Str("d")).compareTo(new Str("abc")) > 0);
+        assertTrue(new Part(new Str("xabx"), 1, 3).compareTo(new Str("abc")) < 0);
+        assertTrue(new Str("abc").compareTo(new Part(new Str("xabx"), 1, 3)) > 0);
+        
+        var first  = new Sequence(new Str("x".repeat(1000)), new Str("a"));
+        var second = new Sequence(new Str("x".repeat(600)),  new Str("x".repeat(400) + "b"));
+        assertEquals("a".compareTo("b"), first.compareTo(second));
+    }
+    
+}